@@ -0,0 +1,112 @@
+package me.fallenbreath.velocitywhitelist.benchmark;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.storage.ListJournal;
+import me.fallenbreath.velocitywhitelist.storage.YamlListStorage;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+class BenchmarkUtils
+{
+	static final Logger LOGGER = NOPLogger.NOP_LOGGER;
+
+	static List<String> createNames(int count)
+	{
+		List<String> names = Lists.newArrayListWithCapacity(count);
+		for (int i = 0; i < count; i++)
+		{
+			names.add("Player" + i);
+		}
+		return names;
+	}
+
+	static List<UUID> createUuids(int count)
+	{
+		Random random = new Random(count);
+		List<UUID> uuids = Lists.newArrayListWithCapacity(count);
+		for (int i = 0; i < count; i++)
+		{
+			uuids.add(new UUID(random.nextLong(), random.nextLong()));
+		}
+		return uuids;
+	}
+
+	static List<Map.Entry<UUID, @Nullable String>> createUuidEntries(List<UUID> uuids, List<String> names)
+	{
+		List<Map.Entry<UUID, @Nullable String>> entries = Lists.newArrayListWithCapacity(uuids.size());
+		for (int i = 0; i < uuids.size(); i++)
+		{
+			entries.add(Maps.immutableEntry(uuids.get(i), names.get(i)));
+		}
+		return entries;
+	}
+
+	/**
+	 * A list without journal, stored in the given directory
+	 */
+	static PlayerList createList(Path directory, String fileName)
+	{
+		return createList(directory, fileName, false);
+	}
+
+	/**
+	 * @param mappedUuids if the uuids are kept in a memory-mapped file once the list is loaded
+	 */
+	static PlayerList createList(Path directory, String fileName, boolean mappedUuids)
+	{
+		Path filePath = directory.resolve(fileName + ".yml");
+		ListJournal journal = new ListJournal(LOGGER, directory.resolve(fileName + ".journal"), () -> false, () -> false);
+		YamlListStorage storage = new YamlListStorage("Benchmark", filePath, () -> mappedUuids, journal, () -> 0);
+		return new PlayerList("Benchmark", filePath, () -> true, () -> false, storage);
+	}
+
+	/**
+	 * An implementation of the given interface, which answers the given methods by name,
+	 * and returns null / false / 0 for everything else
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T stub(Class<T> clazz, Map<String, Object> answers)
+	{
+		return (T)Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, (proxy, method, args) -> {
+			if (answers.containsKey(method.getName()))
+			{
+				return answers.get(method.getName());
+			}
+			Class<?> returnType = method.getReturnType();
+			if (returnType == boolean.class)
+			{
+				return false;
+			}
+			if (returnType.isPrimitive() && returnType != void.class)
+			{
+				return returnType == long.class ? 0L : returnType == double.class ? 0.0 : returnType == float.class ? 0.0f : 0;
+			}
+			return null;
+		});
+	}
+
+	static void deleteRecursively(Path directory) throws IOException
+	{
+		try (Stream<Path> paths = Files.walk(directory))
+		{
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList())
+			{
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package me.fallenbreath.velocitywhitelist.benchmark;
+
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the login path, with contending reader threads. See the nested classes for the thread counts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class PlayerListLookupBenchmark
+{
+	@State(Scope.Benchmark)
+	public static class ListState
+	{
+		@Param({"10000", "1000000"})
+		public int size;
+
+		/**
+		 * Where the uuids are kept, see the uuid_storage config option
+		 */
+		@Param({"heap", "mapped"})
+		public String storage;
+
+		public Path directory;
+		public PlayerList list;
+		public String[] names;
+		public UUID[] uuids;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException
+		{
+			this.directory = Files.createTempDirectory("vw-benchmark");
+			this.list = BenchmarkUtils.createList(this.directory, "list", this.storage.equals("mapped"));
+			List<String> names = BenchmarkUtils.createNames(this.size);
+			List<UUID> uuids = BenchmarkUtils.createUuids(this.size);
+			this.list.importPlayers(names, BenchmarkUtils.createUuidEntries(uuids, names));
+			if (this.storage.equals("mapped"))
+			{
+				// the uuids get mapped when the list is loaded
+				this.list.save();
+				this.list.load(BenchmarkUtils.LOGGER);
+			}
+
+			// half hits, half misses
+			this.names = new String[1024];
+			this.uuids = new UUID[1024];
+			for (int i = 0; i < this.names.length; i++)
+			{
+				boolean hit = i % 2 == 0;
+				this.names[i] = hit ? names.get(i * 7 % this.size) : "Missing" + i;
+				this.uuids[i] = hit ? uuids.get(i * 7 % this.size) : UUID.randomUUID();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException
+		{
+			BenchmarkUtils.deleteRecursively(this.directory);
+		}
+	}
+
+	@Benchmark
+	public boolean checkPlayerName(ListState state)
+	{
+		return state.list.checkPlayerName(state.names[ThreadLocalRandom.current().nextInt(state.names.length)]);
+	}
+
+	@Benchmark
+	public boolean checkPlayerUuid(ListState state)
+	{
+		return state.list.checkPlayerUUID(state.uuids[ThreadLocalRandom.current().nextInt(state.uuids.length)]);
+	}
+
+	@Threads(1)
+	public static class Threads1 extends PlayerListLookupBenchmark
+	{
+	}
+
+	@Threads(4)
+	public static class Threads4 extends PlayerListLookupBenchmark
+	{
+	}
+
+	@Threads(16)
+	public static class Threads16 extends PlayerListLookupBenchmark
+	{
+	}
+
+	@Threads(64)
+	public static class Threads64 extends PlayerListLookupBenchmark
+	{
+	}
+}
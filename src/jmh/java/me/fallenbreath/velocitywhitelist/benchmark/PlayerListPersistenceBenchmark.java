@@ -0,0 +1,106 @@
+package me.fallenbreath.velocitywhitelist.benchmark;
+
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading and saving a list with the given amount of names and the same amount of uuids
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PlayerListPersistenceBenchmark
+{
+	@Param({"10000", "100000", "1000000"})
+	public int size;
+
+	/**
+	 * Where the list is loaded from: the yaml file, the binary snapshot next to it, or the mapped list file next to it
+	 */
+	@Param({"yaml", "binary", "mapped"})
+	public String source;
+
+	private Path directory;
+	private PlayerList list;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		this.directory = Files.createTempDirectory("vw-benchmark");
+		this.list = BenchmarkUtils.createList(this.directory, "list", this.source.equals("mapped"));
+		List<String> names = BenchmarkUtils.createNames(this.size);
+		List<UUID> uuids = BenchmarkUtils.createUuids(this.size);
+		this.list.importPlayers(names, BenchmarkUtils.createUuidEntries(uuids, names));
+		this.list.save();
+		if (this.source.equals("mapped"))
+		{
+			// writes the mapped list file, which is kept valid by the following saves
+			this.list.load(BenchmarkUtils.LOGGER);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void prepareSource() throws IOException
+	{
+		Path snapshotPath = FileUtils.replaceExtension(this.list.getFilePath(), ".bin");
+		if (this.source.equals("mapped"))
+		{
+			return;
+		}
+		if (this.source.equals("yaml"))
+		{
+			Files.deleteIfExists(snapshotPath);
+		}
+		else if (!Files.exists(snapshotPath))
+		{
+			this.list.save();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		BenchmarkUtils.deleteRecursively(this.directory);
+	}
+
+	@Benchmark
+	public PlayerList load() throws IOException
+	{
+		PlayerList newList = this.list.createNewEmptyList();
+		newList.load(BenchmarkUtils.LOGGER);
+		return newList;
+	}
+
+	/**
+	 * Writes both the yaml file and the binary snapshot, or the mapped list file
+	 */
+	@Benchmark
+	public PlayerList save() throws IOException
+	{
+		this.list.save();
+		return this.list;
+	}
+}
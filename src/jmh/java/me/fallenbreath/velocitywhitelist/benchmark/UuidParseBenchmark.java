@@ -0,0 +1,56 @@
+package me.fallenbreath.velocitywhitelist.benchmark;
+
+import me.fallenbreath.velocitywhitelist.utils.UuidUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidParseBenchmark
+{
+	@Param({"dashed", "undashed", "invalid"})
+	public String format;
+
+	private String input;
+	private final long[] bits = new long[2];
+
+	@Setup
+	public void setup()
+	{
+		this.input = switch (this.format)
+		{
+			case "dashed" -> "853c80ef-3c37-49fd-aa49-938b674adae6";
+			case "undashed" -> "853c80ef3c3749fdaa49938b674adae6";
+			default -> "Fallen_Breath";
+		};
+	}
+
+	@Benchmark
+	public Optional<UUID> tryParseUuid()
+	{
+		return UuidUtils.tryParseUuid(this.input);
+	}
+
+	@Benchmark
+	public long tryParseUuidBits()
+	{
+		return UuidUtils.tryParseUuid(this.input, this.bits) ? this.bits[0] ^ this.bits[1] : 0;
+	}
+}
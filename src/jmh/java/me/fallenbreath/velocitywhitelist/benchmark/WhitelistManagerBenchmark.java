@@ -0,0 +1,124 @@
+package me.fallenbreath.velocitywhitelist.benchmark;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.config.ProxyConfig;
+import com.velocitypowered.api.util.GameProfile;
+import me.fallenbreath.velocitywhitelist.WhitelistManager;
+import me.fallenbreath.velocitywhitelist.config.Configuration;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The login check and the removal suggestions, with a whitelist of the given size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhitelistManagerBenchmark
+{
+	@Param({"10000", "100000"})
+	public int size;
+
+	@Param({"name", "uuid"})
+	public String identifyMode;
+
+	private Path directory;
+	private WhitelistManager manager;
+	private LoginEvent allowedLogin;
+	private LoginEvent deniedLogin;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		this.directory = Files.createTempDirectory("vw-benchmark");
+		Configuration config = new Configuration(BenchmarkUtils.LOGGER, this.directory.resolve("config.yml"));
+		config.load(String.join("\n",
+				"_version: 1",
+				"identify_mode: " + this.identifyMode,
+				"whitelist_enabled: true",
+				"blacklist_enabled: false",
+				"whitelist_kick_message: 'You are not in the whitelist, <player>!'"
+		));
+
+		ProxyConfig proxyConfig = BenchmarkUtils.stub(ProxyConfig.class, Map.of("isOnlineMode", true));
+		ProxyServer server = BenchmarkUtils.stub(ProxyServer.class, Map.of("getConfiguration", proxyConfig, "getAllPlayers", List.of()));
+		this.manager = new WhitelistManager(BenchmarkUtils.LOGGER, config, this.directory, server);
+		this.manager.loadLists();
+
+		List<String> names = BenchmarkUtils.createNames(this.size);
+		List<UUID> uuids = BenchmarkUtils.createUuids(this.size);
+		this.manager.getWhitelist().importPlayers(names, BenchmarkUtils.createUuidEntries(uuids, names));
+
+		this.allowedLogin = new LoginEvent(createPlayer(uuids.get(this.size / 2), names.get(this.size / 2)));
+		this.deniedLogin = new LoginEvent(createPlayer(UUID.randomUUID(), "Stranger"));
+	}
+
+	private static Player createPlayer(UUID uuid, String name)
+	{
+		return BenchmarkUtils.stub(Player.class, Map.of(
+				"getGameProfile", new GameProfile(uuid, name, List.of()),
+				"getUniqueId", uuid,
+				"getUsername", name
+		));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		this.manager.shutdown();
+		BenchmarkUtils.deleteRecursively(this.directory);
+	}
+
+	@Benchmark
+	public @Nullable EventTask loginAllowed()
+	{
+		return this.manager.onPlayerLogin(this.allowedLogin);
+	}
+
+	@Benchmark
+	public @Nullable EventTask loginDenied()
+	{
+		return this.manager.onPlayerLogin(this.deniedLogin);
+	}
+
+	/**
+	 * Tab completion right after the command, where everything matches
+	 */
+	@Benchmark
+	public List<String> getRemovalSuggestionsEmptyPrefix()
+	{
+		return this.manager.getRemovalSuggestions(this.manager.getWhitelist(), "");
+	}
+
+	@Benchmark
+	public List<String> getRemovalSuggestions()
+	{
+		return this.manager.getRemovalSuggestions(this.manager.getWhitelist(), "Player12");
+	}
+}
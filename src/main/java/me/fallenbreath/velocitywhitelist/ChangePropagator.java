@@ -0,0 +1,377 @@
+package me.fallenbreath.velocitywhitelist;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.storage.ListJournal;
+import me.fallenbreath.velocitywhitelist.sync.ChangeTransport;
+import me.fallenbreath.velocitywhitelist.sync.SyncMessage;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Propagates the list modifications made on this proxy to the other proxies of the network, and applies theirs incrementally
+ * <p>
+ * Every modification gets a sequence number per list. A receiver that sees a gap in the sequence numbers of a proxy
+ * asks that proxy for a summary of its changes, and buffers the following changes of it until the summary arrives.
+ * The summary only contains what that proxy originated, so the changes of the receiver and of the other proxies are kept
+ * <p>
+ * Receivers acknowledge the applied changes every now and then. A change acknowledged by all known proxies, or made while no other proxy is known,
+ * is no longer kept for summaries after a grace period, so a proxy that shows up later only gets the changes made since then
+ * <p>
+ * Conflicting modifications of the same player made on different proxies at nearly the same time, e.g. an add and a remove,
+ * are not ordered. Each proxy keeps the one it applies last, so the proxies might disagree until the player is modified again
+ */
+public class ChangePropagator
+{
+	// a peer buffering this many more changes without getting the requested summary asks again
+	private static final int RESYNC_RETRY_INTERVAL = 100;
+	// the buffer of a peer is dropped at this size. Its changes are included in the summary of a later request
+	private static final int MAX_RESYNC_BUFFER_SIZE = 10000;
+	// a receiver acknowledges the changes of a peer after applying this many more of them, and after a resync.
+	// The own changes are also checked for pruning at this interval
+	private static final int ACK_INTERVAL = 100;
+	// an acknowledged own change is kept for this long, so a proxy that just started has the time to make itself known before missing it
+	private static final long PRUNE_GRACE_MS = 60 * 1000;
+
+	private record PeerList(String proxyId, String list)
+	{
+	}
+
+	/**
+	 * @param recordedAtMs local monotonic time
+	 */
+	private record OwnChange(long sequence, ListJournal.Entry entry, long recordedAtMs)
+	{
+	}
+
+	private final Logger logger;
+	private final WhitelistManager manager;
+	// a new id on every start, so the sequence numbers of a proxy never go backwards
+	private final String proxyId = UUID.randomUUID().toString();
+	private final Map<String, PlayerList> lists;
+	private final Map<String, AtomicLong> sequences = Maps.newHashMap();
+	// per list, the latest modification of each name and uuid made on this proxy, unless another proxy modified it afterwards.
+	// Updated under the write lock of the list, so it follows the modification order. Keyed by entryKey()
+	private final Map<String, Map<Object, OwnChange>> ownChanges = Maps.newHashMap();
+	// per list, the lowest own sequence number acknowledged by the known peers, or Long.MAX_VALUE if no peer is known
+	private final Map<String, AtomicLong> acknowledgedSequences = Maps.newHashMap();
+	// the following are accessed by the transport thread only
+	private final Map<PeerList, Long> appliedSequences = Maps.newHashMap();
+	private final Map<PeerList, Long> sentAcks = Maps.newHashMap();
+	private final Map<PeerList, List<SyncMessage.Change>> resyncBuffers = Maps.newHashMap();
+	// the peers this proxy has heard of, with the sequence number of this proxy they have acknowledged
+	private final Map<PeerList, Long> receivedAcks = Maps.newHashMap();
+
+	private volatile @Nullable ChangeTransport transport = null;
+	private @Nullable ExecutorService publisher = null;
+
+	/**
+	 * @param lists the lists to propagate, by the list key shared by all proxies
+	 */
+	public ChangePropagator(Logger logger, WhitelistManager manager, Map<String, PlayerList> lists)
+	{
+		this.logger = logger;
+		this.manager = manager;
+		this.lists = ImmutableMap.copyOf(lists);
+		this.lists.keySet().forEach(key -> {
+			this.sequences.put(key, new AtomicLong());
+			this.ownChanges.put(key, Maps.newConcurrentMap());
+			this.acknowledgedSequences.put(key, new AtomicLong(Long.MAX_VALUE));
+		});
+	}
+
+	public String getProxyId()
+	{
+		return this.proxyId;
+	}
+
+	public synchronized void start(ChangeTransport transport)
+	{
+		if (this.transport != null)
+		{
+			return;
+		}
+		// publishes in the order of the modifications, without blocking the modifying threads
+		this.publisher = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Sync Publisher").setDaemon(true).build());
+		try
+		{
+			transport.start(new ChangeTransport.Receiver()
+			{
+				@Override
+				public void receive(SyncMessage message)
+				{
+					ChangePropagator.this.receive(message);
+				}
+
+				@Override
+				public void onPeerGone(String proxyId)
+				{
+					ChangePropagator.this.onPeerGone(proxyId);
+				}
+			});
+		}
+		catch (IOException e)
+		{
+			this.logger.error("Failed to start the list change propagation, list changes will not be exchanged with other proxies", e);
+			this.publisher.shutdown();
+			this.publisher = null;
+			return;
+		}
+		this.transport = transport;
+		this.lists.forEach((key, list) -> list.setChangeListener(entry -> this.onLocalChange(key, list, entry)));
+		this.logger.info("Propagating list changes as proxy {}", this.proxyId);
+	}
+
+	public synchronized void stop()
+	{
+		this.lists.values().forEach(list -> list.setChangeListener(null));
+		if (this.publisher != null)
+		{
+			this.publisher.shutdown();
+			try
+			{
+				if (!this.publisher.awaitTermination(5, TimeUnit.SECONDS))
+				{
+					this.logger.warn("Timed out waiting for the list changes to be published");
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			this.publisher = null;
+		}
+		if (this.transport != null)
+		{
+			this.transport.stop();
+			this.transport = null;
+		}
+	}
+
+	/**
+	 * Invoked under the write lock of the list, so the sequence numbers follow the modification order
+	 */
+	private void onLocalChange(String key, PlayerList list, ListJournal.Entry entry)
+	{
+		// recorded before updating the sequence number, so a summary includes all changes up to the sequence number it reads
+		AtomicLong sequences = this.sequences.get(key);
+		long sequence = sequences.get() + 1;
+		this.ownChanges.get(key).put(entryKey(list, entry), new OwnChange(sequence, entry, monotonicMillis()));
+		sequences.set(sequence);
+		this.publish(new SyncMessage.Change(this.proxyId, key, sequence, entry));
+		if (sequence % ACK_INTERVAL == 0)
+		{
+			this.pruneOwnChanges(key);
+		}
+	}
+
+	private static long monotonicMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	/**
+	 * Drop the own changes that all known peers have acknowledged, once they are older than the grace period
+	 */
+	private void pruneOwnChanges(String key)
+	{
+		long acknowledged = this.acknowledgedSequences.get(key).get();
+		long now = monotonicMillis();
+		// removeIf on a concurrent map only removes an entry if it's still the checked one, so a newer change of the same name or uuid is kept
+		this.ownChanges.get(key).values().removeIf(change -> change.sequence() <= acknowledged && now - change.recordedAtMs() >= PRUNE_GRACE_MS);
+	}
+
+	/**
+	 * Invoked on the transport thread, after the known peers or their acknowledgements change
+	 */
+	private void updateAcknowledgedSequence(String key)
+	{
+		long acknowledged = this.receivedAcks.entrySet().stream().
+				filter(e -> e.getKey().list().equals(key)).
+				mapToLong(Map.Entry::getValue).
+				min().orElse(Long.MAX_VALUE);
+		this.acknowledgedSequences.get(key).set(acknowledged);
+		this.pruneOwnChanges(key);
+	}
+
+	private synchronized void publish(SyncMessage message)
+	{
+		ChangeTransport transport = this.transport;
+		if (this.publisher == null || transport == null)
+		{
+			return;
+		}
+		this.publisher.execute(() -> {
+			try
+			{
+				transport.publish(message);
+			}
+			catch (IOException e)
+			{
+				// the other proxies will see the gap, and resync
+				this.logger.warn("Failed to publish list change: {}", e.toString());
+			}
+		});
+	}
+
+	private void receive(SyncMessage message)
+	{
+		PlayerList list = this.lists.get(message.list());
+		if (message.origin().equals(this.proxyId) || list == null)
+		{
+			return;
+		}
+		if (this.receivedAcks.putIfAbsent(new PeerList(message.origin(), message.list()), 0L) == null)
+		{
+			this.updateAcknowledgedSequence(message.list());
+		}
+
+		if (message instanceof SyncMessage.Change change)
+		{
+			this.onRemoteChange(list, change);
+		}
+		else if (message instanceof SyncMessage.ResyncRequest request && request.target().equals(this.proxyId))
+		{
+			// read before the summary, so the summary includes all changes up to it
+			long sequence = this.sequences.get(request.list()).get();
+			List<ListJournal.Entry> entries = this.ownChanges.get(request.list()).values().stream().map(OwnChange::entry).toList();
+			this.logger.info("Sending {} changes of the {} to proxy {} for resync", entries.size(), list.getName(), request.origin());
+			this.publish(new SyncMessage.ChangeSummary(this.proxyId, request.list(), request.origin(), sequence, entries));
+		}
+		else if (message instanceof SyncMessage.ChangeSummary summary && summary.target().equals(this.proxyId))
+		{
+			this.onRemoteChangeSummary(list, summary);
+		}
+		else if (message instanceof SyncMessage.Ack ack && ack.target().equals(this.proxyId))
+		{
+			this.onAck(ack);
+		}
+	}
+
+	private void onRemoteChange(PlayerList list, SyncMessage.Change change)
+	{
+		PeerList peer = new PeerList(change.origin(), change.list());
+		List<SyncMessage.Change> buffer = this.resyncBuffers.get(peer);
+		if (buffer != null)
+		{
+			if (buffer.size() >= MAX_RESYNC_BUFFER_SIZE)
+			{
+				buffer.clear();
+			}
+			buffer.add(change);
+			if (buffer.size() % RESYNC_RETRY_INTERVAL == 0)
+			{
+				this.publish(new SyncMessage.ResyncRequest(this.proxyId, peer.list(), peer.proxyId()));
+			}
+			return;
+		}
+
+		long applied = this.appliedSequences.getOrDefault(peer, 0L);
+		if (change.sequence() <= applied)
+		{
+			return;
+		}
+		if (change.sequence() > applied + 1)
+		{
+			this.logger.warn("Missed changes {} to {} of the {} from proxy {}, requesting a resync", applied + 1, change.sequence() - 1, list.getName(), peer.proxyId());
+			this.resyncBuffers.put(peer, Lists.newArrayList(change));
+			this.publish(new SyncMessage.ResyncRequest(this.proxyId, peer.list(), peer.proxyId()));
+			return;
+		}
+
+		this.appliedSequences.put(peer, change.sequence());
+		this.applyRemoteChange(change.list(), list, change.entry());
+		if (change.sequence() - this.sentAcks.getOrDefault(peer, 0L) >= ACK_INTERVAL)
+		{
+			this.sendAck(peer);
+		}
+	}
+
+	/**
+	 * Only the entries of the summary are applied, the rest of the list stays as it is
+	 */
+	private void onRemoteChangeSummary(PlayerList list, SyncMessage.ChangeSummary summary)
+	{
+		PeerList peer = new PeerList(summary.origin(), summary.list());
+		this.logger.info("Resyncing the {} with {} changes from proxy {}", list.getName(), summary.entries().size(), peer.proxyId());
+		summary.entries().forEach(entry -> this.applyRemoteChange(summary.list(), list, entry));
+		this.appliedSequences.put(peer, Math.max(summary.sequence(), this.appliedSequences.getOrDefault(peer, 0L)));
+
+		List<SyncMessage.Change> buffer = this.resyncBuffers.remove(peer);
+		if (buffer != null)
+		{
+			buffer.sort(Comparator.comparingLong(SyncMessage.Change::sequence));
+			buffer.forEach(change -> this.onRemoteChange(list, change));
+		}
+		this.sendAck(peer);
+	}
+
+	private void sendAck(PeerList peer)
+	{
+		long applied = this.appliedSequences.getOrDefault(peer, 0L);
+		this.sentAcks.put(peer, applied);
+		this.publish(new SyncMessage.Ack(this.proxyId, peer.list(), peer.proxyId(), applied));
+	}
+
+	private void onAck(SyncMessage.Ack ack)
+	{
+		this.receivedAcks.merge(new PeerList(ack.origin(), ack.list()), ack.sequence(), Math::max);
+		this.updateAcknowledgedSequence(ack.list());
+	}
+
+	/**
+	 * A proxy that shows up again later is treated like a new one, which resyncs on its next change
+	 */
+	private void onPeerGone(String proxyId)
+	{
+		boolean known = this.appliedSequences.keySet().removeIf(peer -> peer.proxyId().equals(proxyId));
+		known |= this.resyncBuffers.keySet().removeIf(peer -> peer.proxyId().equals(proxyId));
+		known |= this.receivedAcks.keySet().removeIf(peer -> peer.proxyId().equals(proxyId));
+		this.sentAcks.keySet().removeIf(peer -> peer.proxyId().equals(proxyId));
+		if (known)
+		{
+			this.lists.keySet().forEach(this::updateAcknowledgedSequence);
+			this.logger.info("Proxy {} is gone, dropped its sync state", proxyId);
+		}
+	}
+
+	private void applyRemoteChange(String key, PlayerList list, ListJournal.Entry entry)
+	{
+		Object entryKey = entryKey(list, entry);
+		// our own modification of the entry, if there's one, is overridden, so it's no longer ours to resync
+		this.manager.applyRemoteChange(list, entry, () -> this.ownChanges.get(key).remove(entryKey));
+	}
+
+	/**
+	 * Modifications of the same name, or of the same uuid, get the same key
+	 */
+	private static Object entryKey(PlayerList list, ListJournal.Entry entry)
+	{
+		if (entry instanceof ListJournal.AddName e)
+		{
+			return list.normalizeName(e.name());
+		}
+		if (entry instanceof ListJournal.RemoveName e)
+		{
+			return list.normalizeName(e.name());
+		}
+		if (entry instanceof ListJournal.PutUuid e)
+		{
+			return e.uuid();
+		}
+		return ((ListJournal.RemoveUuid)entry).uuid();
+	}
+}
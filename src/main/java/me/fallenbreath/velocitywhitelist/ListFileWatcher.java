@@ -0,0 +1,194 @@
+package me.fallenbreath.velocitywhitelist;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fallenbreath.velocitywhitelist.config.Configuration;
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the plugin data directory, and applies external modifications of the list files and the config file
+ * <p>
+ * Bursts of file events are merged, the changes are applied after the files stay quiet for the debounce delay
+ */
+public class ListFileWatcher
+{
+	private static final String CONFIG_FILE_NAME = "config.yml";
+
+	private final Logger logger;
+	private final Configuration config;
+	private final WhitelistManager manager;
+	private final Path dataDirectory;
+	private @Nullable WatchService watchService = null;
+	private @Nullable Thread thread = null;
+
+	public ListFileWatcher(Logger logger, Configuration config, WhitelistManager manager, Path dataDirectory)
+	{
+		this.logger = logger;
+		this.config = config;
+		this.manager = manager;
+		this.dataDirectory = dataDirectory;
+	}
+
+	/**
+	 * Does nothing if the file watch is disabled in the config
+	 */
+	public synchronized void start()
+	{
+		if (!this.config.isFileWatchEnabled() || this.thread != null)
+		{
+			return;
+		}
+
+		try
+		{
+			this.watchService = this.dataDirectory.getFileSystem().newWatchService();
+			this.dataDirectory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+		catch (IOException e)
+		{
+			this.logger.error("Failed to watch the data directory {}, file changes will not be applied automatically", this.dataDirectory, e);
+			return;
+		}
+
+		WatchService watchService = this.watchService;
+		this.thread = new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist File Watcher").setDaemon(true).build().newThread(() -> this.run(watchService));
+		this.thread.start();
+		if (this.manager.isListDatabaseUsed())
+		{
+			this.logger.warn("Watching {} for changes of {} only. The list files are not watched, since the lists are kept in the database with list_storage: h2", this.dataDirectory, CONFIG_FILE_NAME);
+		}
+		else
+		{
+			this.logger.info("Watching {} for file changes", this.dataDirectory);
+		}
+	}
+
+	public synchronized void stop()
+	{
+		if (this.watchService != null)
+		{
+			try
+			{
+				this.watchService.close();
+			}
+			catch (IOException e)
+			{
+				this.logger.warn("Failed to close the file watch service", e);
+			}
+			this.watchService = null;
+		}
+		this.thread = null;
+	}
+
+	private void run(WatchService watchService)
+	{
+		Set<String> changedFiles = Sets.newLinkedHashSet();
+		long lastEventMs = 0;
+		try
+		{
+			while (true)
+			{
+				WatchKey key;
+				if (changedFiles.isEmpty())
+				{
+					key = watchService.take();
+				}
+				else
+				{
+					long waitMs = lastEventMs + this.config.getFileWatchDebounceMs() - System.currentTimeMillis();
+					key = waitMs > 0 ? watchService.poll(waitMs, TimeUnit.MILLISECONDS) : null;
+				}
+
+				if (key != null)
+				{
+					for (WatchEvent<?> event : key.pollEvents())
+					{
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+						{
+							// some events are lost, check everything
+							changedFiles.add(CONFIG_FILE_NAME);
+							this.getLists().forEach(list -> changedFiles.add(list.getFilePath().getFileName().toString()));
+						}
+						else if (event.context() instanceof Path path && this.isWatchedFile(path.getFileName().toString()))
+						{
+							changedFiles.add(path.getFileName().toString());
+						}
+					}
+					key.reset();
+					if (!changedFiles.isEmpty())
+					{
+						lastEventMs = System.currentTimeMillis();
+					}
+				}
+				else if (!changedFiles.isEmpty())
+				{
+					this.applyChanges(changedFiles);
+					changedFiles.clear();
+				}
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException ignored)
+		{
+			// stopped
+		}
+	}
+
+	/**
+	 * The list files are only read for the initial import if the lists are kept in the database
+	 */
+	private List<PlayerList> getLists()
+	{
+		return this.manager.isListDatabaseUsed() ? List.of() : List.of(this.manager.getWhitelist(), this.manager.getBlacklist());
+	}
+
+	private boolean isWatchedFile(String fileName)
+	{
+		// safeWrite temp files, journals, binary snapshots etc. are not interesting
+		return fileName.equals(CONFIG_FILE_NAME) || this.getLists().stream().anyMatch(list -> list.getFilePath().getFileName().toString().equals(fileName));
+	}
+
+	private void applyChanges(Set<String> changedFiles)
+	{
+		// each file is handled on its own, so a broken one does not hold back the others
+		if (changedFiles.contains(CONFIG_FILE_NAME))
+		{
+			this.logger.info("Detected changes in {}, reloading", CONFIG_FILE_NAME);
+			try
+			{
+				this.config.reload();
+			}
+			catch (Exception e)
+			{
+				this.logger.error("Failed to apply file changes of {}", CONFIG_FILE_NAME, e);
+			}
+		}
+		for (PlayerList list : this.getLists())
+		{
+			String fileName = list.getFilePath().getFileName().toString();
+			if (changedFiles.contains(fileName))
+			{
+				try
+				{
+					this.manager.applyListFileChanges(list);
+				}
+				catch (Exception e)
+				{
+					this.logger.error("Failed to apply file changes of {}", fileName, e);
+				}
+			}
+		}
+	}
+}
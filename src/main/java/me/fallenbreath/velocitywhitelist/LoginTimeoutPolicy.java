@@ -0,0 +1,12 @@
+package me.fallenbreath.velocitywhitelist;
+
+/**
+ * What to do with a login, if the whitelist / blacklist check cannot finish before the deadline
+ */
+public enum LoginTimeoutPolicy
+{
+	ALLOW,
+	DENY;
+
+	public static final LoginTimeoutPolicy DEFAULT = ALLOW;
+}
@@ -0,0 +1,287 @@
+package me.fallenbreath.velocitywhitelist;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.util.GameProfile;
+import me.fallenbreath.velocitywhitelist.config.Configuration;
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.utils.UuidUtils;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Imports players from a file in the data directory into a player list
+ * <p>
+ * Each line of the file is a player name, a player UUID, or a "uuid,name" / "name,uuid" pair.
+ * Empty lines and lines starting with "#" are ignored
+ */
+public class PlayerListImporter
+{
+	private static final int BATCH_SIZE = 200;
+
+	private final Logger logger;
+	private final Configuration config;
+	private final ProxyServer server;
+	private final WhitelistManager manager;
+	private final Path dataDirectory;
+	private final ExecutorService executor;
+	private final AtomicBoolean importing = new AtomicBoolean(false);
+
+	private record ImportLine(int lineNumber, @Nullable UUID uuid, @Nullable String name)
+	{
+	}
+
+	private record ResolvedPlayer(@Nullable UUID uuid, @Nullable String name)
+	{
+	}
+
+	private static class ImportState
+	{
+		private final List<String> names = Lists.newArrayList();
+		private final List<Map.Entry<UUID, @Nullable String>> uuidEntries = Lists.newArrayList();
+		private int lineCount = 0;
+		private int invalidCount = 0;
+		private int failedCount = 0;
+	}
+
+	public PlayerListImporter(Logger logger, Configuration config, ProxyServer server, WhitelistManager manager, Path dataDirectory)
+	{
+		this.logger = logger;
+		this.config = config;
+		this.server = server;
+		this.manager = manager;
+		this.dataDirectory = dataDirectory;
+		this.executor = Executors.newSingleThreadExecutor(
+				new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Importer").setDaemon(true).build()
+		);
+	}
+
+	public void shutdown()
+	{
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Start importing in the background. Progress and the summary are reported to the source
+	 *
+	 * @return false if the import cannot be started
+	 */
+	public boolean startImport(CommandSource source, PlayerList list, String fileName)
+	{
+		Path dataDir = this.dataDirectory.toAbsolutePath().normalize();
+		Path file = dataDir.resolve(fileName).normalize();
+		if (!file.startsWith(dataDir))
+		{
+			source.sendMessage(Component.text("The import file needs to be inside the plugin data directory"));
+			return false;
+		}
+		if (!Files.isRegularFile(file))
+		{
+			source.sendMessage(Component.text(String.format("File %s does not exist", dataDir.relativize(file))));
+			return false;
+		}
+		if (!this.importing.compareAndSet(false, true))
+		{
+			source.sendMessage(Component.text("Another import is in progress"));
+			return false;
+		}
+
+		source.sendMessage(Component.text(String.format("Importing players from %s to the %s", dataDir.relativize(file), list.getName())));
+		CompletableFuture.runAsync(() -> this.doImport(source, list, file), this.executor).whenComplete((v, throwable) -> {
+			this.importing.set(false);
+			if (throwable != null)
+			{
+				this.logger.error("Failed to import players from {}", file, throwable);
+				source.sendMessage(Component.text("Import failed, see console for more information"));
+			}
+		});
+		return true;
+	}
+
+	private void doImport(CommandSource source, PlayerList list, Path file)
+	{
+		ImportState state = new ImportState();
+		IdentifyMode mode = this.config.getIdentifyMode();
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			List<ImportLine> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				ImportLine importLine = this.parseLine(line, lineNumber);
+				if (importLine == null)
+				{
+					continue;
+				}
+				batch.add(importLine);
+				if (batch.size() >= BATCH_SIZE)
+				{
+					this.processBatch(batch, mode, state);
+					batch.clear();
+					source.sendMessage(Component.text(String.format("Import progress: %d entries processed", state.lineCount)));
+				}
+			}
+			if (!batch.isEmpty())
+			{
+				this.processBatch(batch, mode, state);
+			}
+		}
+		catch (IOException e)
+		{
+			this.logger.error("Failed to read import file {}", file, e);
+			source.sendMessage(Component.text("Failed to read the import file, nothing is imported"));
+			return;
+		}
+
+		PlayerList.ImportResult result = list.importPlayers(state.names, state.uuidEntries);
+		if (result.added() > 0 || result.updated() > 0)
+		{
+			this.manager.saveList(list);
+		}
+		if (list == this.manager.getBlacklist())
+		{
+			state.names.forEach(name -> this.server.getPlayer(name).ifPresent(this.manager::handlePlayerAddedToBlacklist));
+			state.uuidEntries.forEach(e -> this.server.getPlayer(e.getKey()).ifPresent(this.manager::handlePlayerAddedToBlacklist));
+		}
+
+		String summary = String.format(
+				"Imported %d entries to the %s: %d added, %d updated, %d already present, %d unresolvable, %d invalid",
+				state.lineCount, list.getName(), result.added(), result.updated(), result.unchanged(), state.failedCount, state.invalidCount
+		);
+		this.logger.info(summary);
+		source.sendMessage(Component.text(summary));
+	}
+
+	private @Nullable ImportLine parseLine(String line, int lineNumber)
+	{
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#"))
+		{
+			return null;
+		}
+
+		UUID uuid = null;
+		String name = null;
+		for (String field : line.split(","))
+		{
+			field = field.trim();
+			if (field.isEmpty())
+			{
+				continue;
+			}
+			Optional<UUID> parsed = UuidUtils.tryParseUuid(field);
+			if (parsed.isPresent() && uuid == null)
+			{
+				uuid = parsed.get();
+			}
+			else if (parsed.isEmpty() && name == null)
+			{
+				name = field;
+			}
+		}
+		return new ImportLine(lineNumber, uuid, name);
+	}
+
+	private void processBatch(List<ImportLine> batch, IdentifyMode mode, ImportState state)
+	{
+		// resolve in parallel, but collect in the file order
+		// mojang lookups of the whole batch are gathered into bulk requests by the resolver
+		List<CompletableFuture<Optional<ResolvedPlayer>>> futures = Lists.newArrayListWithCapacity(batch.size());
+		for (ImportLine line : batch)
+		{
+			futures.add(this.resolve(line, mode));
+		}
+
+		for (int i = 0; i < batch.size(); i++)
+		{
+			ImportLine line = batch.get(i);
+			state.lineCount++;
+			if (line.uuid() == null && line.name() == null)
+			{
+				this.logger.warn("Import line {}: neither player name nor UUID is found, skipped", line.lineNumber());
+				state.invalidCount++;
+				continue;
+			}
+			Optional<ResolvedPlayer> resolved = futures.get(i).join();
+			if (resolved.isEmpty())
+			{
+				state.failedCount++;
+				continue;
+			}
+			ResolvedPlayer player = resolved.get();
+			switch (mode)
+			{
+				case NAME -> {
+					if (player.name() != null)
+					{
+						state.names.add(player.name());
+					}
+					else
+					{
+						this.logger.warn("Import line {}: no player name is given in NAME mode, skipped", line.lineNumber());
+						state.invalidCount++;
+					}
+				}
+				case UUID -> state.uuidEntries.add(Maps.immutableEntry(player.uuid(), player.name()));
+			}
+		}
+	}
+
+	private CompletableFuture<Optional<ResolvedPlayer>> resolve(ImportLine line, IdentifyMode mode)
+	{
+		if (mode == IdentifyMode.NAME || line.uuid() != null)
+		{
+			String name = line.name();
+			if (name == null && line.uuid() != null)
+			{
+				name = this.server.getPlayer(line.uuid()).map(Player::getUsername).orElse(null);
+			}
+			return CompletableFuture.completedFuture(Optional.of(new ResolvedPlayer(line.uuid(), name)));
+		}
+
+		// uuid mode, only the name is given
+		String name = line.name();
+		if (name == null)
+		{
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+		Optional<GameProfile> profile = this.server.getPlayer(name).map(Player::getGameProfile);
+		if (profile.isPresent())
+		{
+			return CompletableFuture.completedFuture(Optional.of(new ResolvedPlayer(profile.get().getId(), profile.get().getName())));
+		}
+		if (this.server.getConfiguration().isOnlineMode())
+		{
+			return this.manager.lookupPlayerByNameBatched(name).thenApply(r -> {
+				if (r.isEmpty())
+				{
+					this.logger.warn("Import line {}: cannot resolve the UUID of player {}, skipped", line.lineNumber(), name);
+				}
+				return r.map(qr -> new ResolvedPlayer(qr.uuid(), qr.playerName()));
+			});
+		}
+		return CompletableFuture.completedFuture(Optional.of(new ResolvedPlayer(UuidUtils.getOfflinePlayerUuid(name), name)));
+	}
+}
@@ -1,22 +1,29 @@
 package me.fallenbreath.velocitywhitelist;
 
 import com.google.inject.Inject;
+import com.velocitypowered.api.event.AwaitingEventExecutor;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.LoginEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
 import me.fallenbreath.velocitywhitelist.command.PluginControlCommand;
 import me.fallenbreath.velocitywhitelist.command.WhitelistCommand;
 import me.fallenbreath.velocitywhitelist.config.Configuration;
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.utils.MojangAPI;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 @Plugin(
 		id = PluginMeta.ID, name = PluginMeta.NAME, version = PluginMeta.VERSION,
@@ -31,7 +38,8 @@ public class VelocityWhitelistPlugin
 	private final Path dataDirectory;
 	private final Path configFilePath;
 	private final Configuration config;
-	private final WhitelistManager whitelistManager;
+	// created once the config is loaded, since the list storage depends on it
+	private @Nullable WhitelistManager whitelistManager = null;
 
 	@Inject
 	public VelocityWhitelistPlugin(ProxyServer server, Logger logger, @DataDirectory Path dataDirectory)
@@ -41,24 +49,66 @@ public class VelocityWhitelistPlugin
 		this.dataDirectory = dataDirectory;
 		this.configFilePath = dataDirectory.resolve("config.yml");
 		this.config = new Configuration(this.logger, this.configFilePath);
-		this.whitelistManager = new WhitelistManager(logger, this.config, this.dataDirectory, this.server);
 	}
 
 	@Subscribe
 	public void onProxyInitialization(ProxyInitializeEvent event)
 	{
+		long start = System.nanoTime();
 		if (!this.prepareConfig())
 		{
 			this.logger.error("Failed to prepare config, the plugin will not work");
 			return;
 		}
+		long configDone = System.nanoTime();
+
+		MojangAPI.init(this.server);
+		WhitelistManager whitelistManager = new WhitelistManager(this.logger, this.config, this.dataDirectory, this.server);
+		this.whitelistManager = whitelistManager;
 
 		// now the config dir definitely exists
-		this.whitelistManager.loadLists();
+		whitelistManager.loadProfileCache();
+		long profileCacheDone = System.nanoTime();
+
+		// registered before the lists are loaded, so the logins during the loading wait for them within the configured deadline
+		this.server.getEventManager().register(this, LoginEvent.class, (AwaitingEventExecutor<LoginEvent>)whitelistManager::onPlayerLogin);
+		whitelistManager.loadListsAsync().whenComplete((v, throwable) -> {
+			long listsDone = System.nanoTime();
+			if (throwable != null)
+			{
+				this.logger.error("Failed to load the lists, the plugin might not work correctly!", throwable);
+			}
+			whitelistManager.recordStartupPhase("config", configDone - start);
+			whitelistManager.recordStartupPhase("profile cache", profileCacheDone - configDone);
+			whitelistManager.recordStartupPhase("lists", listsDone - profileCacheDone);
+			this.logger.info("Startup took {}", whitelistManager.formatStartupTimings());
+			for (PlayerList list : List.of(whitelistManager.getWhitelist(), whitelistManager.getBlacklist()))
+			{
+				String loadTimings = whitelistManager.formatLoadTimings(list);
+				if (loadTimings != null)
+				{
+					this.logger.info("{} load: {}", list.getName(), loadTimings);
+				}
+			}
+
+			// these modify the lists, so they wait for the lists to be loaded
+			whitelistManager.startFileWatcher();
+			whitelistManager.startChangePropagation();
+			new WhitelistCommand(this.logger, whitelistManager).register(this.server.getCommandManager());
+			new PluginControlCommand(this.logger, this.config, whitelistManager).register(this.server.getCommandManager());
+		});
 
-		this.server.getEventManager().register(this, LoginEvent.class, this.whitelistManager::onPlayerLogin);
-		new WhitelistCommand(this.whitelistManager).register(this.server.getCommandManager());
-		new PluginControlCommand(this.logger, this.config, this.whitelistManager).register(this.server.getCommandManager());
+		this.server.getScheduler().buildTask(this, whitelistManager::saveProfileCache).repeat(5, TimeUnit.MINUTES).schedule();
+		whitelistManager.startMetricsExporter();
+	}
+
+	@Subscribe
+	public void onProxyShutdown(ProxyShutdownEvent event)
+	{
+		if (this.whitelistManager != null)
+		{
+			this.whitelistManager.shutdown();
+		}
 	}
 
 	private boolean prepareConfig()
@@ -1,7 +1,11 @@
 package me.fallenbreath.velocitywhitelist;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.ResultedEvent;
 import com.velocitypowered.api.event.connection.LoginEvent;
 import com.velocitypowered.api.proxy.Player;
@@ -9,36 +13,159 @@ import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.util.GameProfile;
 import me.fallenbreath.velocitywhitelist.config.Configuration;
 import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.metrics.PluginMetrics;
+import me.fallenbreath.velocitywhitelist.metrics.PrometheusExporter;
+import me.fallenbreath.velocitywhitelist.storage.ListDatabase;
+import me.fallenbreath.velocitywhitelist.storage.ListJournal;
+import me.fallenbreath.velocitywhitelist.storage.ListStorage;
+import me.fallenbreath.velocitywhitelist.storage.SqlListStorage;
+import me.fallenbreath.velocitywhitelist.storage.WriteBehindSaver;
+import me.fallenbreath.velocitywhitelist.storage.YamlListStorage;
+import me.fallenbreath.velocitywhitelist.sync.SharedDirectoryChangeTransport;
 import me.fallenbreath.velocitywhitelist.utils.MojangAPI;
+import me.fallenbreath.velocitywhitelist.utils.MojangBatchResolver;
+import me.fallenbreath.velocitywhitelist.utils.ProfileCache;
 import me.fallenbreath.velocitywhitelist.utils.UuidUtils;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
-import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class WhitelistManager
 {
+	private static final int MAX_REMOVAL_SUGGESTIONS = 100;
+
 	private final Logger logger;
 	private final Configuration config;
 	private final ProxyServer server;
 	private final PlayerList whitelist;
 	private final PlayerList blacklist;
+	private final @Nullable ListDatabase database;
+	private final Map<PlayerList, CompletableFuture<Void>> pendingInitialLoads = Maps.newConcurrentMap();
+	private final Map<PlayerList, PlayerList.LoadTimings> lastLoadTimings = Maps.newConcurrentMap();
+	private final Map<String, Long> startupPhaseNanos = Collections.synchronizedMap(Maps.newLinkedHashMap());
+	private final WriteBehindSaver saver;
+	private final PlayerListImporter importer;
+	private final MojangBatchResolver mojangResolver;
+	private final ProfileCache profileCache;
+	private final ListFileWatcher fileWatcher;
+	private final PrometheusExporter metricsExporter;
+	private final ChangePropagator changePropagator;
+	private final Path dataDirectory;
 
 	public WhitelistManager(Logger logger, Configuration config, Path dataDirectory, ProxyServer server)
 	{
 		this.logger = logger;
 		this.config = config;
-		this.whitelist = new PlayerList("Whitelist", dataDirectory.resolve("whitelist.yml"), this.config::isWhitelistEnabled);
-		this.blacklist = new PlayerList("Blacklist", dataDirectory.resolve("blacklist.yml"), this.config::isBlacklistEnabled);
+		this.database = this.config.isListStorageH2() ? new ListDatabase(logger, dataDirectory.resolve("lists")) : null;
+		this.whitelist = new PlayerList("Whitelist", dataDirectory.resolve("whitelist.yml"), this.config::isWhitelistEnabled, this.config::isNameCaseInsensitive, this.createStorage("Whitelist", dataDirectory, "whitelist"));
+		this.blacklist = new PlayerList("Blacklist", dataDirectory.resolve("blacklist.yml"), this.config::isBlacklistEnabled, this.config::isNameCaseInsensitive, this.createStorage("Blacklist", dataDirectory, "blacklist"));
 		this.server = server;
+		this.saver = new WriteBehindSaver(logger, this.config::getSaveDelayMs, this::saveListNow);
+		this.mojangResolver = new MojangBatchResolver(logger);
+		this.profileCache = new ProfileCache(logger, dataDirectory.resolve("profilecache.bin"), this.config::getProfileCacheNameTtlMs, this.config::getProfileCacheCapacity);
+		this.importer = new PlayerListImporter(logger, this.config, server, this, dataDirectory);
+		this.fileWatcher = new ListFileWatcher(logger, this.config, this, dataDirectory);
+		this.metricsExporter = new PrometheusExporter(logger, this.config, dataDirectory);
+		this.changePropagator = new ChangePropagator(logger, this, Map.of("whitelist", this.whitelist, "blacklist", this.blacklist));
+		this.dataDirectory = dataDirectory;
+
+		for (PlayerList list : List.of(this.whitelist, this.blacklist))
+		{
+			String listLabel = PluginMetrics.listLabel(list.getName());
+			PluginMetrics.LIST_ENTRIES.labels(listLabel, "names").bind(list::getPlayerNameCount);
+			PluginMetrics.LIST_ENTRIES.labels(listLabel, "uuids").bind(list::getPlayerUuidCount);
+		}
+	}
+
+	/**
+	 * The yaml list file, which is also where a newly created database imports the list from
+	 */
+	private ListStorage createStorage(String listName, Path dataDirectory, String key)
+	{
+		ListJournal journal = new ListJournal(this.logger, dataDirectory.resolve(key + ".journal"), this.config::isJournalEnabled, this.config::isJournalFsync);
+		Path listFile = dataDirectory.resolve(key + ".yml");
+		ListStorage yamlStorage = new YamlListStorage(listName, listFile, this.config::isUuidStorageMapped, journal, this.config::getJournalCompactionThresholdBytes);
+		return this.database != null ? new SqlListStorage(this.logger, listName, this.database, key, yamlStorage, listFile) : yamlStorage;
+	}
+
+	public ProfileCache getProfileCache()
+	{
+		return this.profileCache;
+	}
+
+	public void loadProfileCache()
+	{
+		try
+		{
+			this.profileCache.load();
+		}
+		catch (IOException e)
+		{
+			this.logger.error("Failed to load the profile cache", e);
+		}
+	}
+
+	public void saveProfileCache()
+	{
+		this.profileCache.saveIfDirty();
+	}
+
+	private void rememberProfileIfOnline(UUID uuid, String name)
+	{
+		// offline uuids are derived from names, there's nothing worth remembering
+		if (this.server.getConfiguration().isOnlineMode())
+		{
+			this.profileCache.put(uuid, name);
+		}
+	}
+
+	private CompletableFuture<Optional<MojangAPI.QueryResult>> lookupPlayerByName(
+			String name,
+			Function<String, CompletableFuture<Optional<MojangAPI.QueryResult>>> remoteLookup
+	)
+	{
+		var cached = this.profileCache.getByName(name);
+		if (cached.isPresent())
+		{
+			return CompletableFuture.completedFuture(Optional.of(new MojangAPI.QueryResult(cached.get().uuid(), cached.get().name())));
+		}
+		return remoteLookup.apply(name).thenApply(result -> {
+			result.ifPresent(r -> this.profileCache.put(r.uuid(), r.playerName()));
+			return result;
+		});
+	}
+
+	/**
+	 * Resolve a player name via the persistent profile cache, then the mojang API
+	 */
+	public CompletableFuture<Optional<MojangAPI.QueryResult>> lookupPlayerByName(String name)
+	{
+		return this.lookupPlayerByName(name, n -> MojangAPI.queryPlayerByNameAsync(this.logger, n));
+	}
+
+	/**
+	 * Same as {@link #lookupPlayerByName(String)}, but uses the bulk API. Suitable for resolving lots of names
+	 */
+	public CompletableFuture<Optional<MojangAPI.QueryResult>> lookupPlayerByNameBatched(String name)
+	{
+		return this.lookupPlayerByName(name, this.mojangResolver::queryPlayerByName);
 	}
 
 	public PlayerList getWhitelist()
@@ -51,10 +178,100 @@ public class WhitelistManager
 		return this.blacklist;
 	}
 
+	/**
+	 * Load both lists in parallel, and wait until they are loaded
+	 */
 	public void loadLists()
 	{
-		this.loadOneList(this.whitelist);
-		this.loadOneList(this.blacklist);
+		this.loadListsAsync().join();
+	}
+
+	/**
+	 * Load both lists in parallel in the background
+	 * <p>
+	 * Logins arriving before the first load of a list finishes wait for it, see {@link #onPlayerLogin}
+	 */
+	public CompletableFuture<Void> loadListsAsync()
+	{
+		// marked before the loading starts, so a login never sees a list that is neither loaded nor pending
+		this.markInitialLoadPending(this.whitelist);
+		this.markInitialLoadPending(this.blacklist);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2, new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Loader %d").setDaemon(true).build());
+		CompletableFuture<Void> future = CompletableFuture.allOf(
+				CompletableFuture.runAsync(() -> this.loadOneList(this.whitelist), executor),
+				CompletableFuture.runAsync(() -> this.loadOneList(this.blacklist), executor)
+		);
+		future.whenComplete((v, throwable) -> executor.shutdown());
+		return future;
+	}
+
+	private void markInitialLoadPending(PlayerList list)
+	{
+		if (!list.isLoadOk())
+		{
+			this.pendingInitialLoads.putIfAbsent(list, new CompletableFuture<>());
+		}
+	}
+
+	public @Nullable PlayerList.LoadTimings getLastLoadTimings(PlayerList list)
+	{
+		return this.lastLoadTimings.get(list);
+	}
+
+	public void recordStartupPhase(String phase, long nanos)
+	{
+		this.startupPhaseNanos.put(phase, nanos);
+	}
+
+	public Map<String, Long> getStartupPhases()
+	{
+		synchronized (this.startupPhaseNanos)
+		{
+			return ImmutableMap.copyOf(this.startupPhaseNanos);
+		}
+	}
+
+	private static String formatNanos(long nanos)
+	{
+		return String.format("%.1fms", nanos / 1e6);
+	}
+
+	public String formatStartupTimings()
+	{
+		List<String> phases = Lists.newArrayList();
+		this.getStartupPhases().forEach((phase, nanos) -> phases.add(phase + " " + formatNanos(nanos)));
+		return String.join(", ", phases);
+	}
+
+	/**
+	 * @return null if the list has not been loaded yet
+	 */
+	public @Nullable String formatLoadTimings(PlayerList list)
+	{
+		PlayerList.LoadTimings timings = this.getLastLoadTimings(list);
+		if (timings == null)
+		{
+			return null;
+		}
+		return String.format(
+				"read %s, parse %s, index %s (from %s)",
+				formatNanos(timings.readNanos()), formatNanos(timings.parseNanos()), formatNanos(timings.indexNanos()),
+				timings.source()
+		);
+	}
+
+	/**
+	 * The name comments are hand-written, so they are only remembered as unverified profiles
+	 */
+	private void rememberListedProfiles(PlayerList list)
+	{
+		list.forEachPlayerUuidEntry((msb, lsb, name) -> {
+			if (name != null)
+			{
+				this.profileCache.putUnverified(new UUID(msb, lsb), name);
+			}
+		});
 	}
 
 	private boolean isPlayerInList(GameProfile profile, PlayerList list)
@@ -81,40 +298,78 @@ public class WhitelistManager
 		return name != null ? String.format("%s (%s)", name, uuid) : uuid.toString();
 	}
 
-	public List<String> getValuesForRemovalSuggestion(PlayerList list)
+	/**
+	 * At most {@link #MAX_REMOVAL_SUGGESTIONS} values starting with the given prefix, case-insensitively.
+	 * In uuid mode, both uuid strings and player names are suggested
+	 */
+	public List<String> getRemovalSuggestions(PlayerList list, String prefix)
 	{
-		switch (this.config.getIdentifyMode())
+		return switch (this.config.getIdentifyMode())
 		{
-			case NAME:
-				return list.getPlayerNames();
-			case UUID:
-				List<String> values = Lists.newArrayList();
-				var entries = list.getPlayerUuidMappingEntries();
-				entries.forEach(e -> values.add(e.getKey().toString()));
-				entries.forEach(e -> {
-					var name = e.getValue();
-					if (name != null)
-					{
-						values.add(name);
-					}
-				});
-				return values;
-			default:
-				throw new IllegalStateException("Unknown identify mode " + this.config.getIdentifyMode());
-		}
+			case NAME -> list.streamPlayerNamesWithPrefix(prefix).limit(MAX_REMOVAL_SUGGESTIONS).toList();
+			case UUID -> Stream.concat(
+					list.streamUuidPlayerNamesWithPrefix(prefix),
+					list.streamPlayerUuidStringsWithPrefix(prefix)
+			).limit(MAX_REMOVAL_SUGGESTIONS).toList();
+		};
+	}
+
+	/**
+	 * @param page   1-based page number
+	 * @param total  amount of all listed values, or all matched values in a search
+	 */
+	public record ListingPage(List<String> values, int page, int pageCount, int total)
+	{
 	}
 
-	public List<String> getValuesForListing(PlayerList list)
+	/**
+	 * Only the values on the requested page are formatted
+	 *
+	 * @param prefix if not null, only values starting with the prefix are listed. See {@link PlayerList#streamPlayerUuidEntriesWithPrefix} for the uuid mode
+	 * @param page   1-based page number
+	 */
+	public ListingPage getListingPage(PlayerList list, @Nullable String prefix, int page)
 	{
+		int pageSize = this.config.getListPageSize();
 		return switch (this.config.getIdentifyMode())
 		{
-			case NAME -> list.getPlayerNames();
-			case UUID -> list.getPlayerUuidMappingEntries().stream()
-					.map(e -> pretty(e.getKey(), e.getValue()))
-					.toList();
+			case NAME -> prefix == null ?
+					collectPage(list.streamSortedPlayerNames(), list.getPlayerNameCount(), page, pageSize, Function.identity()) :
+					collectPage(list.streamPlayerNamesWithPrefix(prefix), -1, page, pageSize, Function.identity());
+			case UUID -> prefix == null ?
+					collectPage(list.streamPlayerUuidEntries(), list.getPlayerUuidCount(), page, pageSize, e -> pretty(e.getKey(), e.getValue())) :
+					collectPage(list.streamPlayerUuidEntriesWithPrefix(prefix), -1, page, pageSize, e -> pretty(e.getKey(), e.getValue()));
 		};
 	}
 
+	/**
+	 * Only the values on the page are formatted
+	 *
+	 * @param total amount of all values in the stream, or -1 to count them while going through the stream, so it's only iterated once
+	 */
+	private static <T> ListingPage collectPage(Stream<T> stream, int total, int page, int pageSize, Function<T, String> formatter)
+	{
+		long skip = (long)(page - 1) * pageSize;
+		List<String> values = Lists.newArrayList();
+		if (total >= 0)
+		{
+			stream.skip(skip).limit(pageSize).map(formatter).forEach(values::add);
+		}
+		else
+		{
+			Iterator<T> iterator = stream.iterator();
+			for (total = 0; iterator.hasNext(); total++)
+			{
+				T value = iterator.next();
+				if (total >= skip && values.size() < pageSize)
+				{
+					values.add(formatter.apply(value));
+				}
+			}
+		}
+		return new ListingPage(values, page, Math.max(1, (total + pageSize - 1) / pageSize), total);
+	}
+
 	private interface NameModeHandler
 	{
 		boolean handle(@Nullable UUID uuid, @NotNull String playerName);
@@ -125,8 +380,10 @@ public class WhitelistManager
 		boolean handle(@NotNull UUID uuid, @Nullable String playerName, @NotNull String displayName);
 	}
 
-	@SuppressWarnings("EnhancedSwitchMigration")
-	private boolean operatePlayer(
+	/**
+	 * The mojang API lookup, if needed, is done asynchronously. The handlers are invoked once the player is resolved
+	 */
+	private CompletableFuture<Boolean> operatePlayer(
 			CommandSource source,
 			String value,
 			NameModeHandler handleNameMode,
@@ -134,29 +391,39 @@ public class WhitelistManager
 	)
 	{
 		final Optional<UUID> inputUuid = UuidUtils.tryParseUuid(value);
+		Optional<GameProfile> onlineProfile = this.server.getPlayer(value).map(Player::getGameProfile);  // get online player by name
 
-		Optional<UUID> uuid = inputUuid;
-		Optional<GameProfile> profile = this.server.getPlayer(value).map(Player::getGameProfile);  // get online player by name
-
-		if (uuid.isEmpty())
-		{
-			uuid = profile.map(GameProfile::getId);
-		}
-		if (uuid.isEmpty() && profile.isEmpty() && this.config.getIdentifyMode() != IdentifyMode.NAME)  // no need to lookup for name mode
+		CompletableFuture<Optional<GameProfile>> profileFuture = CompletableFuture.completedFuture(onlineProfile);
+		if (inputUuid.isEmpty() && onlineProfile.isEmpty() && this.config.getIdentifyMode() != IdentifyMode.NAME)  // no need to lookup for name mode
 		{
 			// uuid == null && profile == null  -> input is name, player not online
 			if (this.server.getConfiguration().isOnlineMode())
 			{
-				profile = MojangAPI.queryPlayerByName(this.logger, this.server, value)
-						.map(r -> new GameProfile(r.uuid(), r.playerName(), List.of()));
+				profileFuture = this.lookupPlayerByName(value)
+						.thenApply(result -> result.map(r -> new GameProfile(r.uuid(), r.playerName(), List.of())));
 			}
 			else
 			{
 				UUID offlineUuid = UuidUtils.getOfflinePlayerUuid(value);
-				profile = Optional.of(new GameProfile(offlineUuid, value, List.of()));
+				profileFuture = CompletableFuture.completedFuture(Optional.of(new GameProfile(offlineUuid, value, List.of())));
 				source.sendPlainMessage(String.format("Inferred offline uuid from player name %s: %s", value, offlineUuid));
 			}
 		}
+
+		return profileFuture.thenApply(profile -> this.operateResolvedPlayer(source, value, inputUuid, profile, handleNameMode, handleUuidMode));
+	}
+
+	@SuppressWarnings({"EnhancedSwitchMigration", "OptionalUsedAsFieldOrParameterType"})
+	private boolean operateResolvedPlayer(
+			CommandSource source,
+			String value,
+			Optional<UUID> inputUuid,
+			Optional<GameProfile> profile,
+			NameModeHandler handleNameMode,
+			UuidHandler handleUuidMode
+	)
+	{
+		Optional<UUID> uuid = inputUuid;
 		if (uuid.isEmpty())
 		{
 			uuid = profile.map(GameProfile::getId);
@@ -165,6 +432,11 @@ public class WhitelistManager
 		{
 			profile = uuid.flatMap(this.server::getPlayer).map(Player::getGameProfile);
 		}
+		if (profile.isEmpty())
+		{
+			// the player is not online, try the known profiles for its name
+			profile = uuid.flatMap(this.profileCache::getByUuid).map(p -> new GameProfile(p.uuid(), p.name(), List.of()));
+		}
 
 		// uuid: get from value directly, or mojang api (lookup by input value)
 		// profile: get from server online player, lookuped by input value (name / uuid)
@@ -197,7 +469,7 @@ public class WhitelistManager
 		return false;
 	}
 
-	public boolean addPlayer(CommandSource source, PlayerList list, String value)
+	public CompletableFuture<Boolean> addPlayer(CommandSource source, PlayerList list, String value)
 	{
 		boolean isBlacklist = list == this.getBlacklist();
 		return this.operatePlayer(
@@ -257,15 +529,20 @@ public class WhitelistManager
 		);
 	}
 
-	private void handlePlayerAddedToBlacklist(Player player)
+	public boolean importPlayers(CommandSource source, PlayerList list, String fileName)
+	{
+		return this.importer.startImport(source, list, fileName);
+	}
+
+	void handlePlayerAddedToBlacklist(Player player)
 	{
 		var profile = player.getGameProfile();
 		this.logger.info("Kicking player {} ({}) since it's being added to the blacklist", profile.getName(), profile.getId());
-		Component message = MiniMessage.miniMessage().deserialize(this.config.getBlacklistKickMessage());
+		Component message = this.config.getBlacklistKickMessageTemplate().render(profile.getName(), profile.getId(), this.blacklist.getName());
 		player.disconnect(message);
 	}
 
-	public boolean removePlayer(CommandSource source, PlayerList list, String value)
+	public CompletableFuture<Boolean> removePlayer(CommandSource source, PlayerList list, String value)
 	{
 		return this.operatePlayer(
 				source, value,
@@ -291,15 +568,90 @@ public class WhitelistManager
 
 	}
 
-	public void onPlayerLogin(LoginEvent event)
+	private @Nullable CompletableFuture<Void> getPendingInitialLoad(PlayerList list)
+	{
+		if (list.isLoadOk() || !list.isConfigEnabled())
+		{
+			return null;
+		}
+		return this.pendingInitialLoads.get(list);
+	}
+
+	/**
+	 * The decision is made directly on the event thread if both lists are ready in memory,
+	 * otherwise an async task, which waits for the lists to be loaded within the configured deadline, is returned
+	 */
+	public @Nullable EventTask onPlayerLogin(LoginEvent event)
+	{
+		long startNanos = System.nanoTime();
+		CompletableFuture<Void> whitelistLoad = this.getPendingInitialLoad(this.whitelist);
+		CompletableFuture<Void> blacklistLoad = this.getPendingInitialLoad(this.blacklist);
+		if (whitelistLoad == null && blacklistLoad == null)
+		{
+			this.checkLogin(event, startNanos);
+			return null;
+		}
+
+		CompletableFuture<Void> pending;
+		if (whitelistLoad != null && blacklistLoad != null)
+		{
+			pending = CompletableFuture.allOf(whitelistLoad, blacklistLoad);
+		}
+		else
+		{
+			pending = whitelistLoad != null ? whitelistLoad : blacklistLoad;
+		}
+
+		long timeoutMs = this.config.getLoginCheckTimeoutMs();
+		CompletableFuture<Void> task = pending.copy()  // so orTimeout does not affect the shared future
+				.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+				.handle((v, throwable) -> {
+					if (throwable == null)
+					{
+						this.checkLogin(event, startNanos);
+					}
+					else
+					{
+						this.handleLoginCheckTimeout(event, timeoutMs);
+					}
+					return null;
+				});
+		return EventTask.resumeWhenComplete(task);
+	}
+
+	private void handleLoginCheckTimeout(LoginEvent event, long timeoutMs)
+	{
+		GameProfile profile = event.getPlayer().getGameProfile();
+		PluginMetrics.LOGIN_TIMEOUTS.labels(this.config.getLoginTimeoutPolicy().name().toLowerCase()).inc();
+		switch (this.config.getLoginTimeoutPolicy())
+		{
+			case ALLOW -> this.logger.warn("Login check for player {} ({}) timed out after {}ms, allowing", profile.getName(), profile.getId(), timeoutMs);
+			case DENY -> {
+				this.logger.warn("Login check for player {} ({}) timed out after {}ms, denying", profile.getName(), profile.getId(), timeoutMs);
+				event.setResult(ResultedEvent.ComponentResult.denied(Component.text("Login check timed out, please try again later")));
+			}
+		}
+	}
+
+	private static void recordLoginDecision(PlayerList list, boolean allowed, long startNanos)
+	{
+		String listLabel = PluginMetrics.listLabel(list.getName());
+		PluginMetrics.LOGIN_DECISION_SECONDS.labels(listLabel).observeNanos(System.nanoTime() - startNanos);
+		PluginMetrics.LOGIN_DECISIONS.labels(listLabel, allowed ? "allowed" : "denied").inc();
+	}
+
+	private void checkLogin(LoginEvent event, long startNanos)
 	{
 		GameProfile profile = event.getPlayer().getGameProfile();
+		this.rememberProfileIfOnline(profile.getId(), profile.getName());
 
 		if (this.whitelist.isActivated())
 		{
-			if (!this.isPlayerInWhitelist(profile))
+			boolean allowed = this.isPlayerInWhitelist(profile);
+			recordLoginDecision(this.whitelist, allowed, startNanos);
+			if (!allowed)
 			{
-				Component message = MiniMessage.miniMessage().deserialize(this.config.getWhitelistKickMessage());
+				Component message = this.config.getWhitelistKickMessageTemplate().render(profile.getName(), profile.getId(), this.whitelist.getName());
 				event.setResult(ResultedEvent.ComponentResult.denied(message));
 
 				this.logger.info("Kicking player {} ({}) since it's not in the whitelist", profile.getName(), profile.getId());
@@ -307,9 +659,11 @@ public class WhitelistManager
 		}
 		else if (this.blacklist.isActivated())
 		{
-			if (this.isPlayerInBlacklist(profile))
+			boolean allowed = !this.isPlayerInBlacklist(profile);
+			recordLoginDecision(this.blacklist, allowed, startNanos);
+			if (!allowed)
 			{
-				Component message = MiniMessage.miniMessage().deserialize(this.config.getBlacklistKickMessage());
+				Component message = this.config.getBlacklistKickMessageTemplate().render(profile.getName(), profile.getId(), this.blacklist.getName());
 				event.setResult(ResultedEvent.ComponentResult.denied(message));
 
 				this.logger.info("Kicking player {} ({}) since it's in the blacklist", profile.getName(), profile.getId());
@@ -319,17 +673,18 @@ public class WhitelistManager
 
 	public boolean loadOneList(PlayerList destList)
 	{
+		// logins need to wait for the first load, after that the previous content keeps serving until the reload is done
+		this.markInitialLoadPending(destList);
+		CompletableFuture<Void> pendingLoad = this.pendingInitialLoads.get(destList);
+
 		PlayerList newList = destList.createNewEmptyList();
 		try
 		{
-			if (!newList.getFilePath().toFile().isFile())
-			{
-				this.logger.info("Creating default empty {} file", newList.getName());
-				newList.save();
-			}
-			newList.load(this.logger);
+			PlayerList.LoadTimings timings = newList.load(this.logger);
 
 			destList.resetTo(newList);
+			this.rememberListedProfiles(destList);
+			this.lastLoadTimings.put(destList, timings);
 			return true;
 		}
 		catch (IOException e)
@@ -338,9 +693,188 @@ public class WhitelistManager
 			this.logger.error(msg, e);
 			return false;
 		}
+		finally
+		{
+			if (pendingLoad != null)
+			{
+				this.pendingInitialLoads.remove(destList, pendingLoad);
+				pendingLoad.complete(null);
+			}
+		}
 	}
 
+	/**
+	 * Schedule the list to be saved in the background. Multiple calls within the save delay window are coalesced
+	 * <p>
+	 * Nothing is done if the storage already persisted the modification by itself, e.g. in the journal or the database
+	 */
 	public void saveList(PlayerList list)
+	{
+		if (!list.getStorage().isSaveNeeded())
+		{
+			return;
+		}
+		this.saver.markDirty(list);
+	}
+
+	/**
+	 * Write all pending list modifications to the disk, and wait for it to finish
+	 */
+	public void flushPendingSaves()
+	{
+		this.saver.flush();
+	}
+
+	/**
+	 * If the lists are kept in the database, which is decided once on construction
+	 */
+	public boolean isListDatabaseUsed()
+	{
+		return this.database != null;
+	}
+
+	public void startFileWatcher()
+	{
+		this.fileWatcher.start();
+	}
+
+	public void startMetricsExporter()
+	{
+		this.metricsExporter.start();
+	}
+
+	/**
+	 * Does nothing if the change propagation is disabled in the config
+	 */
+	public void startChangePropagation()
+	{
+		if (this.config.isSyncEnabled())
+		{
+			Path directory = this.dataDirectory.resolve(this.config.getSyncDirectory());
+			this.changePropagator.start(new SharedDirectoryChangeTransport(
+					this.logger, directory, this.changePropagator.getProxyId(),
+					this.config.getSyncPollIntervalMs(), this.config.getSyncSegmentSizeBytes(), this.config.getSyncPeerTimeoutMs()
+			));
+		}
+	}
+
+	public ChangePropagator getChangePropagator()
+	{
+		return this.changePropagator;
+	}
+
+	/**
+	 * Apply a modification made on another proxy
+	 *
+	 * @param appliedCallback see {@link PlayerList#applyChange(ListJournal.Entry, Runnable)}. Not invoked if the list is not loaded
+	 */
+	public void applyRemoteChange(PlayerList list, ListJournal.Entry entry, Runnable appliedCallback)
+	{
+		if (!list.isLoadOk() || !list.applyChange(entry, appliedCallback))
+		{
+			return;
+		}
+		this.saveList(list);
+		if (entry instanceof ListJournal.PutUuid e && e.name() != null)
+		{
+			this.profileCache.putUnverified(e.uuid(), e.name());
+		}
+
+		if (list == this.blacklist && list.isActivated())
+		{
+			Optional<Player> addedPlayer = switch (this.config.getIdentifyMode())
+			{
+				case NAME -> entry instanceof ListJournal.AddName e ? this.server.getPlayer(e.name()) : Optional.empty();
+				case UUID -> entry instanceof ListJournal.PutUuid e ? this.server.getPlayer(e.uuid()) : Optional.empty();
+			};
+			addedPlayer.ifPresent(this::handlePlayerAddedToBlacklist);
+		}
+	}
+
+	/**
+	 * Apply external modifications of the list file to the in-memory list, without touching unchanged entries
+	 */
+	public void applyListFileChanges(PlayerList list)
+	{
+		if (!list.isLoadOk())
+		{
+			this.loadOneList(list);
+			return;
+		}
+		if (!list.isFileModifiedExternally())
+		{
+			// written by ourselves
+			return;
+		}
+
+		// taken before the loading, so the modifications made in the meantime are not mistaken for removals in the file
+		PlayerList base = list.createSnapshotCopy();
+		PlayerList newList = list.createNewEmptyList();
+		try
+		{
+			newList.load(this.logger);
+		}
+		catch (IOException e)
+		{
+			this.logger.error("Failed to load the modified {} file, keeping the current content", list.getName(), e);
+			return;
+		}
+
+		this.applyChanges(list, base, newList, "file");
+	}
+
+	/**
+	 * @return if anything is changed
+	 */
+	private boolean applyChanges(PlayerList list, PlayerList base, PlayerList newList, String source)
+	{
+		PlayerList.FileChanges changes = list.applyFileChanges(base, newList);
+		if (changes.isEmpty())
+		{
+			return false;
+		}
+		this.logger.info(
+				"Applied {} changes from {}: {} names added, {} names removed, {} uuids added, {} uuids removed, {} uuids renamed",
+				list.getName(), source, changes.addedNames().size(), changes.removedNames().size(), changes.addedUuids().size(), changes.removedUuids().size(), changes.renamedUuids()
+		);
+		this.rememberListedProfiles(list);
+
+		if (list == this.blacklist && list.isActivated())
+		{
+			for (Player player : this.server.getAllPlayers())
+			{
+				boolean added = switch (this.config.getIdentifyMode())
+				{
+					case NAME -> changes.addedNames().contains(player.getUsername());
+					case UUID -> changes.addedUuids().contains(player.getUniqueId());
+				};
+				if (added)
+				{
+					this.handlePlayerAddedToBlacklist(player);
+				}
+			}
+		}
+		return true;
+	}
+
+	public void shutdown()
+	{
+		this.changePropagator.stop();
+		this.fileWatcher.stop();
+		this.metricsExporter.stop();
+		this.importer.shutdown();
+		this.mojangResolver.shutdown();
+		this.profileCache.saveIfDirty();
+		this.saver.shutdown();
+		this.whitelist.getStorage().close();
+		this.blacklist.getStorage().close();
+		if (this.database != null)
+		{
+			this.database.close();
+		}
+	}
+
+	private void saveListNow(PlayerList list)
 	{
 		try
 		{
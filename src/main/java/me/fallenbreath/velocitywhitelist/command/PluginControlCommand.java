@@ -6,12 +6,17 @@ import com.velocitypowered.api.command.CommandSource;
 import me.fallenbreath.velocitywhitelist.PluginMeta;
 import me.fallenbreath.velocitywhitelist.WhitelistManager;
 import me.fallenbreath.velocitywhitelist.config.Configuration;
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.metrics.PluginMetrics;
+import me.fallenbreath.velocitywhitelist.utils.MojangAPI;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import org.slf4j.Logger;
 
+import java.util.List;
+
 import static me.fallenbreath.velocitywhitelist.command.CommandUtils.literal;
 
 public class PluginControlCommand
@@ -35,14 +40,19 @@ public class PluginControlCommand
 				executes(c -> showPluginInfo(c.getSource())).
 				then(literal("reload").
 						executes(c -> reloadAll(c.getSource()))
+				).
+				then(literal("stats").
+						executes(c -> showStats(c.getSource()))
 				);
 		commandManager.register(new BrigadierCommand(root.build()));
 	}
 
 	private int reloadAll(CommandSource source)
 	{
+		PluginMetrics.COMMANDS.labels("velocitywhitelist reload").inc();
 		try
 		{
+			this.manager.flushPendingSaves();
 			this.config.reload();
 			this.manager.loadLists();
 			source.sendMessage(Component.text("Reloaded config, whitelist and blacklist"));
@@ -56,8 +66,18 @@ public class PluginControlCommand
 		return 0;
 	}
 
+	private int showStats(CommandSource source)
+	{
+		PluginMetrics.COMMANDS.labels("velocitywhitelist stats").inc();
+		var lines = PluginMetrics.REGISTRY.toSummaryLines();
+		source.sendMessage(Component.text(String.format("%s metrics:", PluginMeta.NAME)));
+		lines.forEach(line -> source.sendMessage(Component.text("  " + line)));
+		return lines.size();
+	}
+
 	private int showPluginInfo(CommandSource source)
 	{
+		PluginMetrics.COMMANDS.labels("velocitywhitelist info").inc();
 		source.sendMessage(Component.text(String.format("%s v%s", PluginMeta.NAME, PluginMeta.VERSION)));
 		source.sendMessage(Component.text(String.format("Identify Mode: %s", this.config.getIdentifyMode().name().toLowerCase())));
 		source.sendMessage(Component.text(PluginMeta.REPOSITORY_URL, NamedTextColor.BLUE, TextDecoration.UNDERLINED).clickEvent(ClickEvent.openUrl(PluginMeta.REPOSITORY_URL)));
@@ -65,6 +85,22 @@ public class PluginControlCommand
 		WhitelistCommand.showListStatus(source, this.manager.getWhitelist(), "  ");
 		source.sendMessage(Component.text("Blacklist:"));
 		WhitelistCommand.showListStatus(source, this.manager.getBlacklist(), "  ");
+		var cacheStats = MojangAPI.getQueryCacheStats();
+		source.sendMessage(Component.text(String.format(
+				"Mojang API cache: %d entries, %d hits, %d misses (hit rate %.1f%%), %d evictions",
+				cacheStats.size(), cacheStats.hits(), cacheStats.misses(), cacheStats.hitRate() * 100, cacheStats.evictions()
+		)));
+		source.sendMessage(Component.text(String.format("Mojang API duplicated in-flight lookups collapsed: %d", MojangAPI.getCollapsedQueryCount())));
+		source.sendMessage(Component.text(String.format("Profile cache size: %d", this.manager.getProfileCache().size())));
+		source.sendMessage(Component.text(String.format("Startup timing: %s", this.manager.formatStartupTimings())));
+		for (PlayerList list : List.of(this.manager.getWhitelist(), this.manager.getBlacklist()))
+		{
+			String loadTimings = this.manager.formatLoadTimings(list);
+			if (loadTimings != null)
+			{
+				source.sendMessage(Component.text(String.format("%s last load: %s", list.getName(), loadTimings)));
+			}
+		}
 		return 0;
 	}
 }
@@ -7,18 +7,26 @@ import com.velocitypowered.api.command.CommandSource;
 import me.fallenbreath.velocitywhitelist.PluginMeta;
 import me.fallenbreath.velocitywhitelist.WhitelistManager;
 import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import me.fallenbreath.velocitywhitelist.metrics.PluginMetrics;
 import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
 
+import static com.mojang.brigadier.arguments.IntegerArgumentType.getInteger;
+import static com.mojang.brigadier.arguments.IntegerArgumentType.integer;
 import static com.mojang.brigadier.arguments.StringArgumentType.getString;
+import static com.mojang.brigadier.arguments.StringArgumentType.greedyString;
 import static com.mojang.brigadier.arguments.StringArgumentType.word;
 import static me.fallenbreath.velocitywhitelist.command.CommandUtils.*;
 
 public class WhitelistCommand
 {
+	private final Logger logger;
 	private final WhitelistManager manager;
 
-	public WhitelistCommand(WhitelistManager whitelistManager)
+	public WhitelistCommand(Logger logger, WhitelistManager whitelistManager)
 	{
+		this.logger = logger;
 		this.manager = whitelistManager;
 	}
 
@@ -40,12 +48,28 @@ public class WhitelistCommand
 				).
 				then(literal("remove").
 						then(argument("name", word()).
-								suggests((c, sb) -> suggestMatching(this.manager.getValuesForRemovalSuggestion(list), sb)).
+								suggests((c, sb) -> suggestMatching(this.manager.getRemovalSuggestions(list, sb.getRemaining()), sb)).
 								executes(c -> removePlayer(c.getSource(), list, getString(c, "name")))
 						)
 				).
+				then(literal("import").
+						then(argument("file", greedyString()).
+								executes(c -> importPlayers(c.getSource(), list, getString(c, "file")))
+						)
+				).
 				then(literal("list").
-						executes(c -> listPlayers(c.getSource(), list))
+						executes(c -> listPlayers(c.getSource(), list, null, 1)).
+						then(argument("page", integer(1)).
+								executes(c -> listPlayers(c.getSource(), list, null, getInteger(c, "page")))
+						).
+						then(literal("search").
+								then(argument("prefix", word()).
+										executes(c -> listPlayers(c.getSource(), list, getString(c, "prefix"), 1)).
+										then(argument("page", integer(1)).
+												executes(c -> listPlayers(c.getSource(), list, getString(c, "prefix"), getInteger(c, "page")))
+										)
+								)
+						)
 				).
 				then(literal("reload").
 						executes(c -> reloadList(c.getSource(), list))
@@ -68,8 +92,14 @@ public class WhitelistCommand
 		this.registerOne(commandManager, new String[]{"blacklist", "vblacklist"}, this.manager.getBlacklist());
 	}
 
+	private static void recordCommand(PlayerList list, String command)
+	{
+		PluginMetrics.COMMANDS.labels(PluginMetrics.listLabel(list.getName()) + " " + command).inc();
+	}
+
 	private int showListStatus(CommandSource source, PlayerList list)
 	{
+		recordCommand(list, "status");
 		source.sendMessage(Component.text(String.format("%s v%s", PluginMeta.NAME, PluginMeta.VERSION)));
 		showListStatus(source, list, list.getName() + " ");
 		return 1;
@@ -78,63 +108,97 @@ public class WhitelistCommand
 	protected static void showListStatus(CommandSource source, PlayerList list, String prefix)
 	{
 		source.sendMessage(Component.text(String.format("%sActivated: %s (config enabled: %s, load ok: %s)", prefix, list.isActivated(), list.isConfigEnabled(), list.isLoadOk())));
-		source.sendMessage(Component.text(String.format("%sSize: %d player names, %d player UUIDs", prefix, list.getPlayerNames().size(), list.getPlayerUuidMappingEntries().size())));
+		source.sendMessage(Component.text(String.format("%sSize: %d player names, %d player UUIDs", prefix, list.getPlayerNameCount(), list.getPlayerUuidCount())));
 	}
 
 	private int addPlayer(CommandSource source, PlayerList list, String playerName)
 	{
+		recordCommand(list, "add");
 		if (!list.isActivated())
 		{
 			source.sendMessage(Component.text(String.format("%s is not activated", list.getName())));
 			return 0;
 		}
 
-		if (this.manager.addPlayer(source, list,playerName))
-		{
-			this.manager.saveList(list);
-			return 1;
-		}
-		return 0;
+		this.manager.addPlayer(source, list, playerName).whenComplete((ok, throwable) -> this.onPlayerOperated(source, list, ok, throwable));
+		return 1;
 	}
 
 	private int removePlayer(CommandSource source, PlayerList list, String playerName)
 	{
+		recordCommand(list, "remove");
 		if (!list.isActivated())
 		{
 			source.sendMessage(Component.text(String.format("%s is not activated", list.getName())));
 			return 0;
 		}
 
-		if (this.manager.removePlayer(source, list, playerName))
+		this.manager.removePlayer(source, list, playerName).whenComplete((ok, throwable) -> this.onPlayerOperated(source, list, ok, throwable));
+		return 1;
+	}
+
+	private void onPlayerOperated(CommandSource source, PlayerList list, @Nullable Boolean ok, @Nullable Throwable throwable)
+	{
+		if (throwable != null)
+		{
+			this.logger.error("Failed to operate player in the {}", list.getName(), throwable);
+			source.sendMessage(Component.text("Operation failed, see console for more information"));
+		}
+		else if (ok)
 		{
 			this.manager.saveList(list);
-			return 1;
 		}
-		return 0;
 	}
 
-	private int listPlayers(CommandSource source, PlayerList list)
+	private int importPlayers(CommandSource source, PlayerList list, String fileName)
 	{
+		recordCommand(list, "import");
 		if (!list.isActivated())
 		{
 			source.sendMessage(Component.text(String.format("%s is not activated", list.getName())));
 			return 0;
 		}
 
-		var players = this.manager.getValuesForListing(list);
-		source.sendMessage(Component.text(String.format("%s size: %d", list.getName(), players.size())));
-		source.sendMessage(Component.text(String.format("%s players: %s", list.getName(), Joiner.on(", ").join(players))));
-		return players.size();
+		return this.manager.importPlayers(source, list, fileName) ? 1 : 0;
+	}
+
+	private int listPlayers(CommandSource source, PlayerList list, @Nullable String searchPrefix, int page)
+	{
+		recordCommand(list, "list");
+		if (!list.isActivated())
+		{
+			source.sendMessage(Component.text(String.format("%s is not activated", list.getName())));
+			return 0;
+		}
+
+		WhitelistManager.ListingPage listing = this.manager.getListingPage(list, searchPrefix, page);
+		if (searchPrefix == null)
+		{
+			source.sendMessage(Component.text(String.format("%s size: %d", list.getName(), listing.total())));
+		}
+		else
+		{
+			source.sendMessage(Component.text(String.format("%s players matching \"%s\": %d", list.getName(), searchPrefix, listing.total())));
+		}
+		if (page > listing.pageCount())
+		{
+			source.sendMessage(Component.text(String.format("Page %d does not exist, there are %d pages", page, listing.pageCount())));
+			return 0;
+		}
+		source.sendMessage(Component.text(String.format("%s players (page %d/%d): %s", list.getName(), page, listing.pageCount(), Joiner.on(", ").join(listing.values()))));
+		return listing.values().size();
 	}
 
 	private int reloadList(CommandSource source, PlayerList list)
 	{
+		recordCommand(list, "reload");
 		if (!list.isConfigEnabled())
 		{
 			source.sendMessage(Component.text(String.format("%s is disabled by config", list.getName())));
 			return 0;
 		}
 
+		this.manager.flushPendingSaves();
 		if (this.manager.loadOneList(list))
 		{
 			source.sendMessage(Component.text(String.format("%s reloaded", list.getName())));
@@ -2,8 +2,11 @@ package me.fallenbreath.velocitywhitelist.config;
 
 import com.google.common.collect.Maps;
 import me.fallenbreath.velocitywhitelist.IdentifyMode;
+import me.fallenbreath.velocitywhitelist.LoginTimeoutPolicy;
 import me.fallenbreath.velocitywhitelist.PluginMeta;
 import me.fallenbreath.velocitywhitelist.utils.FileUtils;
+import me.fallenbreath.velocitywhitelist.utils.MojangAPI;
+import me.fallenbreath.velocitywhitelist.utils.MojangQueryCache;
 import org.slf4j.Logger;
 import org.yaml.snakeyaml.Yaml;
 
@@ -15,11 +18,15 @@ import java.util.Optional;
 
 public class Configuration
 {
-	private final Map<String, Object> options = Maps.newConcurrentMap();
+	// replaced as a whole on load, so readers never see a half-loaded config
+	private volatile Map<String, Object> options = Maps.newConcurrentMap();
 	private final Logger logger;
 	private final Path configFilePath;
 
-	private IdentifyMode identifyMode = IdentifyMode.DEFAULT;
+	private volatile IdentifyMode identifyMode = IdentifyMode.DEFAULT;
+	private volatile LoginTimeoutPolicy loginTimeoutPolicy = LoginTimeoutPolicy.DEFAULT;
+	private volatile KickMessageTemplate whitelistKickMessageTemplate = KickMessageTemplate.compile(this.getWhitelistKickMessage());
+	private volatile KickMessageTemplate blacklistKickMessageTemplate = KickMessageTemplate.compile(this.getBlacklistKickMessage());
 
 	public Configuration(Logger logger, Path configFilePath)
 	{
@@ -30,11 +37,16 @@ public class Configuration
 	@SuppressWarnings("unchecked")
 	public void load(String yamlContent)
 	{
-		this.options.clear();
-		this.options.putAll(new Yaml().loadAs(yamlContent, this.options.getClass()));
-		this.migrate();
+		Map<String, Object> options = Maps.newConcurrentMap();
+		options.putAll(new Yaml().loadAs(yamlContent, options.getClass()));
+		this.migrate(options);
+		this.options = options;
 
 		this.identifyMode = this.makeIdentifyMode();
+		this.loginTimeoutPolicy = this.makeLoginTimeoutPolicy();
+		MojangAPI.configureQueryCache(this.getMojangQueryCacheSettings());
+		this.whitelistKickMessageTemplate = KickMessageTemplate.compile(this.getWhitelistKickMessage());
+		this.blacklistKickMessageTemplate = KickMessageTemplate.compile(this.getBlacklistKickMessage());
 	}
 
 	public void reload() throws IOException
@@ -43,10 +55,10 @@ public class Configuration
 		this.load(content);
 	}
 
-	private void migrate()
+	private void migrate(Map<String, Object> options)
 	{
 		boolean migrated = false;
-		if (this.options.get("_version") == null)
+		if (options.get("_version") == null)
 		{
 			// migrate v0.2 -> v0.3
 			this.logger.warn("Migrating config file from pre-v0.3");
@@ -54,14 +66,14 @@ public class Configuration
 
 			Map<String, Object> newOptions = Maps.newLinkedHashMap();
 			newOptions.put("_version", 1);
-			newOptions.put("identify_mode", Optional.ofNullable(this.options.get("identify_mode")).orElse("name"));
-			newOptions.put("whitelist_enabled", Optional.ofNullable(this.options.get("enabled")).orElse(true));
-			newOptions.put("whitelist_kick_message", Optional.ofNullable(this.options.get("kick_message")).orElse("You are not in the whitelist!"));
-			newOptions.put("blacklist_enabled", Optional.ofNullable(this.options.get("enabled")).orElse(true));  // it's ok to enable an empty blacklist
+			newOptions.put("identify_mode", Optional.ofNullable(options.get("identify_mode")).orElse("name"));
+			newOptions.put("whitelist_enabled", Optional.ofNullable(options.get("enabled")).orElse(true));
+			newOptions.put("whitelist_kick_message", Optional.ofNullable(options.get("kick_message")).orElse("You are not in the whitelist!"));
+			newOptions.put("blacklist_enabled", Optional.ofNullable(options.get("enabled")).orElse(true));  // it's ok to enable an empty blacklist
 			newOptions.put("blacklist_kick_message", "You are banned from the server!");
 
-			this.options.clear();
-			this.options.putAll(newOptions);
+			options.clear();
+			options.putAll(newOptions);
 			migrated = true;
 		}
 
@@ -69,7 +81,7 @@ public class Configuration
 		{
 			try
 			{
-				this.save();
+				this.save(options);
 			}
 			catch (IOException e)
 			{
@@ -78,9 +90,9 @@ public class Configuration
 		}
 	}
 
-	private void save() throws IOException
+	private void save(Map<String, Object> options) throws IOException
 	{
-		FileUtils.dumpYaml(this.configFilePath, this.options);
+		FileUtils.dumpYaml(this.configFilePath, options);
 	}
 
 	private IdentifyMode makeIdentifyMode()
@@ -100,6 +112,33 @@ public class Configuration
 		return IdentifyMode.DEFAULT;
 	}
 
+	private LoginTimeoutPolicy makeLoginTimeoutPolicy()
+	{
+		Object policy = this.options.get("login_check_timeout_policy");
+		if (policy instanceof String)
+		{
+			try
+			{
+				return LoginTimeoutPolicy.valueOf(((String)policy).toUpperCase());
+			}
+			catch (IllegalArgumentException e)
+			{
+				this.logger.warn("Invalid login check timeout policy: {}, use default value {}", policy, LoginTimeoutPolicy.DEFAULT.name().toLowerCase());
+			}
+		}
+		return LoginTimeoutPolicy.DEFAULT;
+	}
+
+	private long getNonNegativeLong(String key, long defaultValue)
+	{
+		Object value = this.options.get(key);
+		if (value instanceof Number number && number.longValue() >= 0)
+		{
+			return number.longValue();
+		}
+		return defaultValue;
+	}
+
 	public boolean isWhitelistEnabled()
 	{
 		Object enabled = this.options.get("whitelist_enabled");
@@ -144,4 +183,199 @@ public class Configuration
 		}
 		return "You are banned from the server!";
 	}
+
+	public long getLoginCheckTimeoutMs()
+	{
+		return this.getNonNegativeLong("login_check_timeout_ms", 3000);
+	}
+
+	public long getSaveDelayMs()
+	{
+		return this.getNonNegativeLong("save_delay_ms", 1000);
+	}
+
+	private boolean getBoolean(String key, boolean defaultValue)
+	{
+		Object value = this.options.get(key);
+		if (value instanceof Boolean)
+		{
+			return (Boolean)value;
+		}
+		return defaultValue;
+	}
+
+	public boolean isJournalEnabled()
+	{
+		return this.getBoolean("journal_enabled", false);
+	}
+
+	public boolean isJournalFsync()
+	{
+		return this.getBoolean("journal_fsync", false);
+	}
+
+	public boolean isNameCaseInsensitive()
+	{
+		Object mode = this.options.get("name_match_mode");
+		if (mode instanceof String s)
+		{
+			if (s.equalsIgnoreCase("case_insensitive"))
+			{
+				return true;
+			}
+			if (!s.equalsIgnoreCase("exact"))
+			{
+				this.logger.warn("Invalid name match mode: {}, use default value exact", mode);
+			}
+		}
+		return false;
+	}
+
+	public int getListPageSize()
+	{
+		return (int)Math.min(Math.max(1, this.getNonNegativeLong("list_page_size", 50)), 1000);
+	}
+
+	public boolean isUuidStorageMapped()
+	{
+		Object storage = this.options.get("uuid_storage");
+		if (storage instanceof String s)
+		{
+			if (s.equalsIgnoreCase("mapped"))
+			{
+				return true;
+			}
+			if (!s.equalsIgnoreCase("heap"))
+			{
+				this.logger.warn("Invalid uuid storage: {}, use default value heap", storage);
+			}
+		}
+		return false;
+	}
+
+	public String getMetricsExportFile()
+	{
+		Object file = this.options.get("metrics_export_file");
+		if (file instanceof String)
+		{
+			return (String)file;
+		}
+		return "";
+	}
+
+	public int getMetricsExportPort()
+	{
+		long port = this.getNonNegativeLong("metrics_export_port", 0);
+		if (port > 65535)
+		{
+			this.logger.warn("Invalid metrics export port: {}, metrics export via http is disabled", port);
+			return 0;
+		}
+		return (int)port;
+	}
+
+	public long getMetricsExportIntervalSeconds()
+	{
+		return Math.max(1, this.getNonNegativeLong("metrics_export_interval_seconds", 15));
+	}
+
+	public boolean isFileWatchEnabled()
+	{
+		return this.getBoolean("file_watch_enabled", false);
+	}
+
+	public long getFileWatchDebounceMs()
+	{
+		return this.getNonNegativeLong("file_watch_debounce_ms", 500);
+	}
+
+	public boolean isSyncEnabled()
+	{
+		return this.getBoolean("sync_enabled", false);
+	}
+
+	public String getSyncDirectory()
+	{
+		Object directory = this.options.get("sync_directory");
+		if (directory instanceof String s && !s.isEmpty())
+		{
+			return s;
+		}
+		return "sync";
+	}
+
+	public long getSyncPollIntervalMs()
+	{
+		return Math.max(1, this.getNonNegativeLong("sync_poll_interval_ms", 500));
+	}
+
+	public long getSyncSegmentSizeBytes()
+	{
+		return Math.max(1, this.getNonNegativeLong("sync_segment_size_kb", 1024)) * 1024;
+	}
+
+	public long getSyncPeerTimeoutMs()
+	{
+		return Math.max(1, this.getNonNegativeLong("sync_peer_timeout_seconds", 60)) * 1000;
+	}
+
+	/**
+	 * If the lists are kept in the embedded h2 database instead of the yaml list files
+	 */
+	public boolean isListStorageH2()
+	{
+		Object storage = this.options.get("list_storage");
+		if (storage instanceof String s)
+		{
+			if (s.equalsIgnoreCase("h2"))
+			{
+				return true;
+			}
+			if (!s.equalsIgnoreCase("yaml"))
+			{
+				this.logger.warn("Invalid list storage: {}, use default value yaml", storage);
+			}
+		}
+		return false;
+	}
+
+	public long getJournalCompactionThresholdBytes()
+	{
+		return this.getNonNegativeLong("journal_compaction_threshold_kb", 1024) * 1024;
+	}
+
+	public MojangQueryCache.Settings getMojangQueryCacheSettings()
+	{
+		MojangQueryCache.Settings def = MojangQueryCache.Settings.DEFAULT;
+		return new MojangQueryCache.Settings(
+				(int)Math.min(Integer.MAX_VALUE, this.getNonNegativeLong("mojang_cache_capacity", def.capacity())),
+				this.getNonNegativeLong("mojang_cache_ttl_seconds", def.ttlMs() / 1000) * 1000,
+				this.getNonNegativeLong("mojang_cache_negative_ttl_seconds", def.negativeTtlMs() / 1000) * 1000
+		);
+	}
+
+	public long getProfileCacheNameTtlMs()
+	{
+		return this.getNonNegativeLong("profile_cache_name_ttl_days", 30) * 24 * 60 * 60 * 1000;
+	}
+
+	public int getProfileCacheCapacity()
+	{
+		return (int)Math.max(1, Math.min(Integer.MAX_VALUE, this.getNonNegativeLong("profile_cache_capacity", 100000)));
+	}
+
+	public LoginTimeoutPolicy getLoginTimeoutPolicy()
+	{
+		return this.loginTimeoutPolicy;
+	}
+
+	public KickMessageTemplate getWhitelistKickMessageTemplate()
+	{
+		return this.whitelistKickMessageTemplate;
+	}
+
+	public KickMessageTemplate getBlacklistKickMessageTemplate()
+	{
+		return this.blacklistKickMessageTemplate;
+	}
 }
@@ -0,0 +1,106 @@
+package me.fallenbreath.velocitywhitelist.config;
+
+import com.google.common.collect.Lists;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A MiniMessage kick message that is parsed only once
+ * <p>
+ * Supported placeholders: {@code <player>}, {@code <uuid>}, {@code <list>}.
+ * Placeholders are parsed into marker texts, which are substituted with the actual values on {@link #render}
+ * by replacements that are built only once
+ */
+public class KickMessageTemplate
+{
+	// the values being rendered on the current thread, read by the replacements
+	private static final ThreadLocal<RenderContext> RENDERING = new ThreadLocal<>();
+
+	private enum PlaceholderKind
+	{
+		PLAYER("player", ctx -> ctx.playerName),
+		UUID("uuid", ctx -> ctx.uuid.toString()),
+		LIST("list", ctx -> ctx.listName);
+
+		private final String tag;
+		private final String marker;
+		private final TextReplacementConfig replacement;
+
+		PlaceholderKind(String tag, Function<RenderContext, String> valueGetter)
+		{
+			this.tag = tag;
+			// private use area characters, which will never appear in a sane message
+			this.marker = "\uE000" + tag + "\uE001";
+			this.replacement = TextReplacementConfig.builder()
+					.matchLiteral(this.marker)
+					.replacement(builder -> builder.content(valueGetter.apply(RENDERING.get())))
+					.build();
+		}
+	}
+
+	private record RenderContext(String playerName, UUID uuid, String listName)
+	{
+	}
+
+	private final String template;
+	private final Component component;
+	private final List<PlaceholderKind> usedPlaceholders;
+
+	private KickMessageTemplate(String template, Component component, List<PlaceholderKind> usedPlaceholders)
+	{
+		this.template = template;
+		this.component = component;
+		this.usedPlaceholders = usedPlaceholders;
+	}
+
+	public static KickMessageTemplate compile(String template)
+	{
+		List<PlaceholderKind> usedPlaceholders = Lists.newArrayList();
+		List<TagResolver> resolvers = Lists.newArrayList();
+		for (PlaceholderKind kind : PlaceholderKind.values())
+		{
+			if (template.contains("<" + kind.tag + ">"))
+			{
+				usedPlaceholders.add(kind);
+				resolvers.add(Placeholder.component(kind.tag, Component.text(kind.marker)));
+			}
+		}
+		Component component = MiniMessage.miniMessage().deserialize(template, TagResolver.resolver(resolvers.toArray(new TagResolver[0])));
+		return new KickMessageTemplate(template, component, List.copyOf(usedPlaceholders));
+	}
+
+	public String getTemplate()
+	{
+		return this.template;
+	}
+
+	public Component render(String playerName, UUID uuid, String listName)
+	{
+		if (this.usedPlaceholders.isEmpty())
+		{
+			return this.component;
+		}
+
+		RENDERING.set(new RenderContext(playerName, uuid, listName));
+		try
+		{
+			Component result = this.component;
+			for (PlaceholderKind kind : this.usedPlaceholders)
+			{
+				result = result.replaceText(kind.replacement);
+			}
+			return result;
+		}
+		finally
+		{
+			RENDERING.remove();
+		}
+	}
+}
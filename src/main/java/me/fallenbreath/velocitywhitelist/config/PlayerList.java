@@ -5,36 +5,82 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import me.fallenbreath.velocitywhitelist.utils.FileUtils;
-import me.fallenbreath.velocitywhitelist.utils.UuidUtils;
+import me.fallenbreath.velocitywhitelist.metrics.PluginMetrics;
+import me.fallenbreath.velocitywhitelist.storage.ListJournal;
+import me.fallenbreath.velocitywhitelist.storage.ListStorage;
+import me.fallenbreath.velocitywhitelist.utils.NameSet;
+import me.fallenbreath.velocitywhitelist.utils.UuidMap;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
-import org.yaml.snakeyaml.Yaml;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class PlayerList
 {
-	private final Set<String> names = Sets.newLinkedHashSet();
-	private final Map<UUID, @Nullable String> uuids = Maps.newLinkedHashMap();
 	private final String name;
 	private final Path filePath;
 	private final Supplier<Boolean> configEnableGetter;
-	private boolean loadOk = false;
-	private final Object lock = new Object();
+	private final BooleanSupplier caseInsensitiveNamesGetter;
+	private final ListStorage storage;
 
-	public PlayerList(String name, Path filePath, Supplier<Boolean> configEnableGetter)
+	// readers never lock, writers build a new snapshot and CAS it in
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+	// keeps the order of snapshot updates and storage records consistent. Readers never touch it
+	private final Object writeLock = new Object();
+	// built on first use, then updated along with the modifications under the write lock
+	private volatile @Nullable PlayerListIndex index = null;
+	// notified of the modifications made on this proxy, under the write lock
+	private volatile @Nullable Consumer<ListJournal.Entry> changeListener = null;
+
+	/**
+	 * An immutable version of the list content. Never modify the collections inside
+	 */
+	private record Snapshot(NameSet names, UuidStore uuids, boolean loadOk)
+	{
+		private static final Snapshot EMPTY = new Snapshot(new NameSet(false), new UuidMap(), false);
+
+		private static Snapshot of(NameSet names, UuidStore uuids, boolean loadOk)
+		{
+			return new Snapshot(names, uuids, loadOk);
+		}
+
+		private Snapshot withNames(NameSet newNames)
+		{
+			return of(newNames, this.uuids, this.loadOk);
+		}
+
+		private Snapshot withUuids(UuidStore newUuids)
+		{
+			return new Snapshot(this.names, newUuids, this.loadOk);
+		}
+	}
+
+	/**
+	 * @param filePath the yaml list file, which external modifications are watched on
+	 * @param caseInsensitiveNamesGetter if player names differing only in letter case are treated as the same name.
+	 *                                   Takes effect when the list is loaded
+	 */
+	public PlayerList(String name, Path filePath, Supplier<Boolean> configEnableGetter, BooleanSupplier caseInsensitiveNamesGetter, ListStorage storage)
 	{
 		this.name = name;
 		this.filePath = filePath;
 		this.configEnableGetter = configEnableGetter;
+		this.caseInsensitiveNamesGetter = caseInsensitiveNamesGetter;
+		this.storage = storage;
 	}
 
 	public String getName()
@@ -47,76 +93,301 @@ public class PlayerList
 		return this.filePath;
 	}
 
+	public ListStorage getStorage()
+	{
+		return this.storage;
+	}
+
+	/**
+	 * The listener is invoked under the write lock, in the order of the modifications.
+	 * Modifications applied with {@link #applyChange} are not passed to it
+	 */
+	public void setChangeListener(@Nullable Consumer<ListJournal.Entry> changeListener)
+	{
+		this.changeListener = changeListener;
+	}
+
+	/**
+	 * @see NameSet#normalize
+	 */
+	public String normalizeName(String name)
+	{
+		return this.snapshot.get().names().normalize(name);
+	}
+
 	public boolean isLoadOk()
 	{
-		synchronized (this.lock)
+		return this.snapshot.get().loadOk();
+	}
+
+	public boolean isConfigEnabled()
+	{
+		return this.configEnableGetter.get();
+	}
+
+	public boolean isActivated()
+	{
+		return this.isLoadOk() && this.isConfigEnabled();
+	}
+
+	/**
+	 * Keep applying the given operator to the latest snapshot until the CAS succeeds
+	 * The operator might be invoked multiple times, so it needs to be side-effect free
+	 * Returning the same snapshot instance means nothing is changed
+	 *
+	 * @return the replaced snapshot, or null if nothing is changed
+	 */
+	private @Nullable Snapshot updateSnapshot(UnaryOperator<Snapshot> operator)
+	{
+		while (true)
 		{
-			return this.loadOk;
+			Snapshot current = this.snapshot.get();
+			Snapshot updated = operator.apply(current);
+			if (updated == current)
+			{
+				return null;
+			}
+			if (this.snapshot.compareAndSet(current, updated))
+			{
+				return current;
+			}
 		}
 	}
 
-	public boolean isConfigEnabled()
+	/**
+	 * Persist the modification in the storage, and apply it to the index. Invoked under the write lock, after the snapshot is updated
+	 *
+	 * @param replaced the snapshot before the modification
+	 */
+	private void persist(ListJournal.Entry entry, Snapshot replaced)
 	{
-		synchronized (this.lock)
+		this.storage.record(entry);
+		PlayerListIndex index = this.index;
+		if (index != null)
 		{
-			return this.configEnableGetter.get();
+			index.apply(entry, replaced.uuids(), this.snapshot.get().uuids());
 		}
 	}
 
-	public boolean isActivated()
+	/**
+	 * Persist a modification made on this proxy, and notify the change listener. Invoked under the write lock, after the snapshot is updated
+	 *
+	 * @param replaced the snapshot before the modification
+	 */
+	private void record(ListJournal.Entry entry, Snapshot replaced)
 	{
-		synchronized (this.lock)
+		this.persist(entry, replaced);
+		Consumer<ListJournal.Entry> listener = this.changeListener;
+		if (listener != null)
 		{
-			return this.isLoadOk() && this.isConfigEnabled();
+			listener.accept(entry);
 		}
 	}
 
-	public ImmutableList<String> getPlayerNames()
+	/**
+	 * Same as {@link #record(ListJournal.Entry)}, but lets the storage persist all modifications at once
+	 */
+	private void recordAll(List<ListJournal.Entry> entries, Snapshot replaced)
 	{
-		synchronized (this.lock)
+		this.storage.recordAll(entries);
+		PlayerListIndex index = this.index;
+		if (index != null)
 		{
-			return ImmutableList.copyOf(this.names);
+			UuidStore after = this.snapshot.get().uuids();
+			entries.forEach(entry -> index.apply(entry, replaced.uuids(), after));
+		}
+		Consumer<ListJournal.Entry> listener = this.changeListener;
+		if (listener != null)
+		{
+			entries.forEach(listener);
 		}
 	}
 
-	public boolean checkPlayerName(String name)
+	private PlayerListIndex getIndex()
 	{
-		synchronized (this.lock)
+		PlayerListIndex index = this.index;
+		if (index == null)
 		{
-			return this.names.contains(name);
+			synchronized (this.writeLock)
+			{
+				index = this.index;
+				if (index == null)
+				{
+					Snapshot current = this.snapshot.get();
+					index = PlayerListIndex.of(current.names(), current.uuids());
+					this.index = index;
+				}
+			}
 		}
+		return index;
+	}
+
+	/**
+	 * Player names in case-insensitive order
+	 */
+	public Stream<String> streamSortedPlayerNames()
+	{
+		return this.getIndex().sortedNames();
+	}
+
+	/**
+	 * Player names starting with the given prefix, case-insensitively, in case-insensitive order
+	 */
+	public Stream<String> streamPlayerNamesWithPrefix(String prefix)
+	{
+		return this.getIndex().namesWithPrefix(prefix);
+	}
+
+	/**
+	 * Uuid entries in the list order, streamed from the uuid storage without copying it
+	 */
+	public Stream<Map.Entry<UUID, @Nullable String>> streamPlayerUuidEntries()
+	{
+		return this.snapshot.get().uuids().stream();
+	}
+
+	private static boolean hasNamePrefix(@Nullable String name, String prefix)
+	{
+		return name != null && name.regionMatches(true, 0, prefix, 0, prefix.length());
+	}
+
+	/**
+	 * Uuid entries whose uuid string starts with the given prefix, case-insensitively. The dashes in the prefix are optional
+	 * <p>
+	 * Served by a range lookup, since all uuids starting with some hex digits form a contiguous range in the uuid string order
+	 */
+	private Stream<Map.Entry<UUID, @Nullable String>> streamUuidEntriesWithUuidPrefix(UuidStore uuids, String prefix)
+	{
+		String hexDigits = prefix.replace("-", "");
+		if (hexDigits.length() > 32 || !hexDigits.chars().allMatch(c -> Character.digit(c, 16) >= 0))
+		{
+			return Stream.empty();
+		}
+		// all uuids starting with the digits are within [digits + "000...", digits + "fff..."]
+		String low = hexDigits + "0".repeat(32 - hexDigits.length());
+		String high = hexDigits + "f".repeat(32 - hexDigits.length());
+		UUID from = new UUID(Long.parseUnsignedLong(low.substring(0, 16), 16), Long.parseUnsignedLong(low.substring(16), 16));
+		UUID to = new UUID(Long.parseUnsignedLong(high.substring(0, 16), 16), Long.parseUnsignedLong(high.substring(16), 16));
+
+		@Nullable Stream<UUID> indexedRange = this.getIndex().uuidRange(from, to);
+		if (indexedRange == null)
+		{
+			return uuids.streamUuidRange(from, to);
+		}
+		return indexedRange.filter(uuids::contains).map(uuid -> Maps.immutableEntry(uuid, uuids.getName(uuid)));
+	}
+
+	/**
+	 * Uuid entries whose name starts with the given prefix, case-insensitively, in case-insensitive name order,
+	 * then the other entries whose uuid string starts with the given prefix, in uuid order. The dashes in the prefix are optional for matching the uuid string
+	 */
+	public Stream<Map.Entry<UUID, @Nullable String>> streamPlayerUuidEntriesWithPrefix(String prefix)
+	{
+		UuidStore uuids = this.snapshot.get().uuids();
+		return Stream.concat(
+				this.getIndex().uuidsWithNamePrefix(prefix).
+						map(uuid -> Maps.immutableEntry(uuid, uuids.getName(uuid))).
+						filter(entry -> hasNamePrefix(entry.getValue(), prefix)),
+				this.streamUuidEntriesWithUuidPrefix(uuids, prefix).filter(entry -> !hasNamePrefix(entry.getValue(), prefix))
+		);
+	}
+
+	/**
+	 * Distinct player names of the uuid entries starting with the given prefix, case-insensitively, in case-insensitive order
+	 */
+	public Stream<String> streamUuidPlayerNamesWithPrefix(String prefix)
+	{
+		return this.getIndex().uuidNamesWithPrefix(prefix);
+	}
+
+	/**
+	 * Uuid strings starting with the given prefix, case-insensitively, in uuid order
+	 */
+	public Stream<String> streamPlayerUuidStringsWithPrefix(String prefix)
+	{
+		return this.streamUuidEntriesWithUuidPrefix(this.snapshot.get().uuids(), prefix).map(entry -> entry.getKey().toString());
+	}
+
+	public ImmutableList<String> getPlayerNames()
+	{
+		return ImmutableList.copyOf(this.snapshot.get().names());
+	}
+
+	public int getPlayerNameCount()
+	{
+		return this.snapshot.get().names().size();
+	}
+
+	public int getPlayerUuidCount()
+	{
+		return this.snapshot.get().uuids().size();
+	}
+
+	public boolean checkPlayerName(String name)
+	{
+		return this.snapshot.get().names().contains(name);
 	}
 
 	public boolean addPlayerName(String name)
 	{
-		synchronized (this.lock)
+		synchronized (this.writeLock)
 		{
-			return this.names.add(name);
+			Snapshot replaced = this.updateSnapshot(s -> {
+				if (s.names().contains(name))
+				{
+					return s;
+				}
+				NameSet newNames = s.names().copy();
+				newNames.add(name);
+				return s.withNames(newNames);
+			});
+			if (replaced != null)
+			{
+				this.record(new ListJournal.AddName(name), replaced);
+			}
+			return replaced != null;
 		}
 	}
 
 	public boolean removePlayerName(String name)
 	{
-		synchronized (this.lock)
+		synchronized (this.writeLock)
 		{
-			return this.names.remove(name);
+			// the stored spelling might differ in letter case
+			String storedName = this.snapshot.get().names().getStored(name);
+			Snapshot replaced = storedName == null ? null : this.updateSnapshot(s -> {
+				if (!s.names().contains(storedName))
+				{
+					return s;
+				}
+				NameSet newNames = s.names().copy();
+				newNames.remove(storedName);
+				return s.withNames(newNames);
+			});
+			if (replaced != null)
+			{
+				this.record(new ListJournal.RemoveName(storedName), replaced);
+			}
+			return replaced != null;
 		}
 	}
 
 	public ImmutableList<Map.Entry<UUID, @Nullable String>> getPlayerUuidMappingEntries()
 	{
-		synchronized (this.lock)
-		{
-			return ImmutableList.copyOf(this.uuids.entrySet());
-		}
+		return this.snapshot.get().uuids().entries();
+	}
+
+	/**
+	 * Iterate the uuid entries of the current content without copying them
+	 */
+	public void forEachPlayerUuidEntry(UuidStore.EntryConsumer consumer)
+	{
+		this.snapshot.get().uuids().forEach(consumer);
 	}
 
 	public boolean checkPlayerUUID(UUID uuid)
 	{
-		synchronized (this.lock)
-		{
-			return this.uuids.containsKey(uuid);
-		}
+		return this.snapshot.get().uuids().contains(uuid);
 	}
 
 	public static class PlayerUUIDComputeResult<T>
@@ -132,16 +403,24 @@ public class PlayerList
 		PlayerUUIDComputeResult<T> compute(boolean exists, @Nullable String oldName);
 	}
 
+	/**
+	 * The compute function is invoked exactly once, against the snapshot at the time of the call,
+	 * so it's fine for it to have side effects (e.g. sending feedback messages)
+	 */
 	public <T> T computePlayerUUID(UUID uuid, PlayerUUIDComputeFunction<T> func)
 	{
-		synchronized (this.lock)
+		synchronized (this.writeLock)
 		{
-			boolean exists = this.uuids.containsKey(uuid);
-			String oldName = this.uuids.get(uuid);
-			PlayerUUIDComputeResult<T> result = func.compute(exists, oldName);
+			Snapshot current = this.snapshot.get();
+			PlayerUUIDComputeResult<T> result = func.compute(current.uuids().contains(uuid), current.uuids().getName(uuid));
 			if (result.addNewValue)
 			{
-				this.uuids.put(uuid, result.newValue);
+				Snapshot replaced = this.updateSnapshot(s -> {
+					UuidStore newUuids = s.uuids().copy();
+					newUuids.put(uuid, result.newValue);
+					return s.withUuids(newUuids);
+				});
+				this.record(new ListJournal.PutUuid(uuid, result.newValue), Objects.requireNonNull(replaced));
 			}
 			return result.ret;
 		}
@@ -149,112 +428,374 @@ public class PlayerList
 
 	public @Nullable String removePlayerUUID(UUID uuid)
 	{
-		synchronized (this.lock)
+		synchronized (this.writeLock)
 		{
-			return this.uuids.remove(uuid);
+			Snapshot replaced = this.updateSnapshot(s -> {
+				if (!s.uuids().contains(uuid))
+				{
+					return s;
+				}
+				UuidStore newUuids = s.uuids().copy();
+				newUuids.remove(uuid);
+				return s.withUuids(newUuids);
+			});
+			if (replaced == null)
+			{
+				return null;
+			}
+			this.record(new ListJournal.RemoveUuid(uuid), replaced);
+			return replaced.uuids().getName(uuid);
 		}
 	}
 
-	public void resetTo(@NotNull PlayerList newList)
+	/**
+	 * Apply a modification made somewhere else, e.g. on another proxy. It's persisted in the storage, but not passed to the change listener
+	 *
+	 * @return if anything is changed
+	 */
+	public boolean applyChange(ListJournal.Entry entry)
 	{
-		synchronized (this.lock)
+		return this.applyChange(entry, () -> {});
+	}
+
+	/**
+	 * @param appliedCallback invoked under the write lock once the modification is applied, even if nothing is changed,
+	 *                        so it's ordered with the modifications passed to the change listener
+	 */
+	public boolean applyChange(ListJournal.Entry entry, Runnable appliedCallback)
+	{
+		synchronized (this.writeLock)
 		{
-			if (!this.name.equals(newList.getName()))
+			ListJournal.Entry applied = entry;
+			if (entry instanceof ListJournal.RemoveName e)
 			{
-				throw new IllegalArgumentException("Attempted to reset to a player list with different name");
+				// the stored spelling might differ in letter case
+				String storedName = this.snapshot.get().names().getStored(e.name());
+				if (storedName == null)
+				{
+					appliedCallback.run();
+					return false;
+				}
+				applied = new ListJournal.RemoveName(storedName);
 			}
-			if (!this.filePath.equals(newList.getFilePath()))
-			{
-				throw new IllegalArgumentException("Attempted to reset to a player list with different filePath");
-			}
-			if (!newList.loadOk)
+
+			ListJournal.Entry finalApplied = applied;
+			Snapshot replaced = this.updateSnapshot(s -> {
+				if (finalApplied instanceof ListJournal.AddName e)
+				{
+					if (s.names().contains(e.name()))
+					{
+						return s;
+					}
+					NameSet newNames = s.names().copy();
+					newNames.add(e.name());
+					return s.withNames(newNames);
+				}
+				else if (finalApplied instanceof ListJournal.RemoveName e)
+				{
+					if (!s.names().contains(e.name()))
+					{
+						return s;
+					}
+					NameSet newNames = s.names().copy();
+					newNames.remove(e.name());
+					return s.withNames(newNames);
+				}
+				else if (finalApplied instanceof ListJournal.PutUuid e)
+				{
+					if (s.uuids().contains(e.uuid()) && Objects.equals(s.uuids().getName(e.uuid()), e.name()))
+					{
+						return s;
+					}
+					UuidStore newUuids = s.uuids().copy();
+					newUuids.put(e.uuid(), e.name());
+					return s.withUuids(newUuids);
+				}
+				else if (finalApplied instanceof ListJournal.RemoveUuid e)
+				{
+					if (!s.uuids().contains(e.uuid()))
+					{
+						return s;
+					}
+					UuidStore newUuids = s.uuids().copy();
+					newUuids.remove(e.uuid());
+					return s.withUuids(newUuids);
+				}
+				return s;
+			});
+			if (replaced != null)
 			{
-				throw new IllegalArgumentException("Attempted to reset to a player list with loadOk == false");
+				this.persist(applied, replaced);
 			}
-			this.names.clear();
-			this.names.addAll(newList.names);
-			this.uuids.clear();
-			this.uuids.putAll(newList.uuids);
-			this.loadOk = true;
+			appliedCallback.run();
+			return replaced != null;
 		}
 	}
 
-	public PlayerList createNewEmptyList()
+	public record ImportResult(int added, int updated, int unchanged)
 	{
-		return new PlayerList(this.name, this.filePath, this.configEnableGetter);
 	}
 
-	@SuppressWarnings({"unchecked", "rawtypes"})
-	public void load(Logger logger) throws IOException
+	/**
+	 * Add all given names and uuids in a single snapshot update
+	 * <p>
+	 * For an existing uuid, its name gets updated if a different non-null name is provided, same as what the add command does
+	 */
+	public ImportResult importPlayers(Collection<String> names, List<Map.Entry<UUID, @Nullable String>> uuidEntries)
 	{
-		Map<String, Object> options = Maps.newHashMap();
-		String yamlContent = Files.readString(this.filePath);
-
-		options = new Yaml().loadAs(yamlContent, options.getClass());
-
-		synchronized (this.lock)
+		synchronized (this.writeLock)
 		{
-			this.names.clear();
-			if (options.get("names") instanceof List list)
+			Snapshot current = this.snapshot.get();
+			NameSet newNames = current.names().copy();
+			UuidStore newUuids = current.uuids().copy();
+			List<ListJournal.Entry> journalEntries = Lists.newArrayList();
+			int added = 0, updated = 0, unchanged = 0;
+
+			for (String name : names)
 			{
-				list.forEach(entry -> this.names.add(entry.toString()));
+				if (newNames.add(name))
+				{
+					journalEntries.add(new ListJournal.AddName(name));
+					added++;
+				}
+				else
+				{
+					unchanged++;
+				}
 			}
-
-			this.uuids.clear();
-			if (options.get("uuids") instanceof List list)
+			for (Map.Entry<UUID, @Nullable String> entry : uuidEntries)
 			{
-				list.forEach(item -> {
-					if (item instanceof String s)
-					{
-						UuidUtils.tryParseUuid(s).ifPresentOrElse(
-								uuid -> this.uuids.put(uuid, null),
-								() -> logger.warn("Skipping invalid UUID \"{}\"", s)
-						);
-					}
-					else if (item instanceof Map<?, ?> map)
+				UUID uuid = entry.getKey();
+				String playerName = entry.getValue();
+				if (newUuids.contains(uuid))
+				{
+					String oldName = newUuids.getName(uuid);
+					if (playerName != null && !playerName.equals(oldName))
 					{
-						if (map.size() != 1)
-						{
-							logger.warn("Skipping invalid map item with size {}", map.size());
-						}
-						else
-						{
-							Map.Entry<?, ?> entry = map.entrySet().iterator().next();
-							if (entry.getKey() instanceof String s && (entry.getValue() instanceof String || entry.getValue() == null))
-							{
-								String name = (String)entry.getValue();
-								UuidUtils.tryParseUuid(s).ifPresentOrElse(
-										uuid -> this.uuids.put(uuid, name),
-										() -> logger.warn("Skipping invalid UUID \"{}\" ({})", s, name)
-								);
-							}
-						}
+						newUuids.put(uuid, playerName);
+						journalEntries.add(new ListJournal.PutUuid(uuid, playerName));
+						updated++;
 					}
 					else
 					{
-						logger.warn("Skipping invalid UUID list item {}", item);
+						unchanged++;
 					}
-				});
+				}
+				else
+				{
+					newUuids.put(uuid, playerName);
+					journalEntries.add(new ListJournal.PutUuid(uuid, playerName));
+					added++;
+				}
 			}
 
-			this.loadOk = true;
-			logger.info("{} loaded with {} names and {} uuids", this.name, this.names.size(), this.uuids.size());
+			if (!journalEntries.isEmpty())
+			{
+				Snapshot replaced = this.updateSnapshot(s -> Snapshot.of(newNames, newUuids, s.loadOk()));
+				this.recordAll(journalEntries, Objects.requireNonNull(replaced));
+			}
+			return new ImportResult(added, updated, unchanged);
 		}
 	}
 
+	public void resetTo(@NotNull PlayerList newList)
+	{
+		if (!this.name.equals(newList.getName()))
+		{
+			throw new IllegalArgumentException("Attempted to reset to a player list with different name");
+		}
+		if (!this.filePath.equals(newList.getFilePath()))
+		{
+			throw new IllegalArgumentException("Attempted to reset to a player list with different filePath");
+		}
+		Snapshot newSnapshot = newList.snapshot.get();
+		if (!newSnapshot.loadOk())
+		{
+			throw new IllegalArgumentException("Attempted to reset to a player list with loadOk == false");
+		}
+		synchronized (this.writeLock)
+		{
+			this.snapshot.set(newSnapshot);
+			this.index = null;
+		}
+	}
+
+	public record FileChanges(Set<String> addedNames, Set<String> removedNames, Set<UUID> addedUuids, Set<UUID> removedUuids, int renamedUuids)
+	{
+		public boolean isEmpty()
+		{
+			return this.addedNames.isEmpty() && this.removedNames.isEmpty() && this.addedUuids.isEmpty() && this.removedUuids.isEmpty() && this.renamedUuids == 0;
+		}
+	}
+
+	/**
+	 * If the stored list is modified by someone else since we last loaded or wrote it
+	 */
+	public boolean isFileModifiedExternally()
+	{
+		return this.storage.isModifiedExternally();
+	}
+
+	/**
+	 * Apply the changes made in the stored list since base was taken, i.e. the differences between base and the freshly loaded newList, to this list.
+	 * Modifications made to this list after base was taken are kept. Entries that are unchanged are kept as-is, and nothing is touched if there's no difference
+	 *
+	 * @param base a copy of this list taken before newList is loaded, see {@link #createSnapshotCopy}
+	 */
+	public FileChanges applyFileChanges(@NotNull PlayerList base, @NotNull PlayerList newList)
+	{
+		Snapshot baseSnapshot = base.snapshot.get();
+		Snapshot newSnapshot = newList.snapshot.get();
+		if (!baseSnapshot.loadOk() || !newSnapshot.loadOk())
+		{
+			throw new IllegalArgumentException("Attempted to apply changes from a player list with loadOk == false");
+		}
+
+		FileChanges changes;
+		synchronized (this.writeLock)
+		{
+			Snapshot current = this.snapshot.get();
+			NameSet addedNames = new NameSet(current.names().isCaseInsensitive());
+			for (String name : newSnapshot.names())
+			{
+				if (!baseSnapshot.names().contains(name) && !current.names().contains(name))
+				{
+					addedNames.add(name);
+				}
+			}
+			NameSet removedNames = new NameSet(current.names().isCaseInsensitive());
+			for (String name : baseSnapshot.names())
+			{
+				String storedName = current.names().getStored(name);
+				if (!newSnapshot.names().contains(name) && storedName != null)
+				{
+					removedNames.add(storedName);
+				}
+			}
+			Set<UUID> addedUuids = Sets.newLinkedHashSet();
+			Set<UUID> removedUuids = Sets.newLinkedHashSet();
+			UuidMap renamed = new UuidMap();
+			newSnapshot.uuids().forEach((msb, lsb, name) -> {
+				UUID uuid = new UUID(msb, lsb);
+				if (baseSnapshot.uuids().contains(msb, lsb) && Objects.equals(baseSnapshot.uuids().getName(uuid), name))
+				{
+					// not changed in the stored list
+					return;
+				}
+				if (!current.uuids().contains(msb, lsb))
+				{
+					addedUuids.add(uuid);
+				}
+				else if (!Objects.equals(current.uuids().getName(uuid), name))
+				{
+					renamed.put(msb, lsb, name);
+				}
+			});
+			baseSnapshot.uuids().forEach((msb, lsb, name) -> {
+				if (!newSnapshot.uuids().contains(msb, lsb) && current.uuids().contains(msb, lsb))
+				{
+					removedUuids.add(new UUID(msb, lsb));
+				}
+			});
+			changes = new FileChanges(addedNames, removedNames, addedUuids, removedUuids, renamed.size());
+
+			if (!changes.isEmpty())
+			{
+				NameSet names = current.names().copy();
+				names.removeAll(removedNames);
+				names.addAll(addedNames);
+				UuidStore uuids = current.uuids().copy();
+				removedUuids.forEach(uuids::remove);
+				addedUuids.forEach(uuid -> uuids.put(uuid, newSnapshot.uuids().getName(uuid)));
+				renamed.forEach(uuids::put);
+				this.snapshot.set(Snapshot.of(names, uuids, current.loadOk()));
+
+				PlayerListIndex index = this.index;
+				if (index != null)
+				{
+					removedNames.forEach(name -> index.apply(new ListJournal.RemoveName(name), current.uuids(), uuids));
+					addedNames.forEach(name -> index.apply(new ListJournal.AddName(name), current.uuids(), uuids));
+					removedUuids.forEach(uuid -> index.updateUuid(uuid, current.uuids(), uuids));
+					addedUuids.forEach(uuid -> index.updateUuid(uuid, current.uuids(), uuids));
+					renamed.forEach((msb, lsb, name) -> index.updateUuid(new UUID(msb, lsb), current.uuids(), uuids));
+				}
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * A list with the current content of this list, which stays unchanged when this list gets modified
+	 */
+	public PlayerList createSnapshotCopy()
+	{
+		PlayerList copy = this.createNewEmptyList();
+		copy.snapshot.set(this.snapshot.get());
+		return copy;
+	}
+
+	/**
+	 * The new list shares the storage with this list
+	 */
+	public PlayerList createNewEmptyList()
+	{
+		return new PlayerList(this.name, this.filePath, this.configEnableGetter, this.caseInsensitiveNamesGetter, this.storage);
+	}
+
+	/**
+	 * @param readNanos time spent on reading the binary snapshot, the mapped list file or the database
+	 * @param parseNanos time spent on parsing the yaml file, if the binary snapshot is not usable
+	 * @param indexNanos time spent on replaying the journal and building the in-memory list
+	 * @param source where the content is loaded from
+	 */
+	public record LoadTimings(long readNanos, long parseNanos, long indexNanos, String source)
+	{
+	}
+
+	public LoadTimings load(Logger logger) throws IOException
+	{
+		long start = System.nanoTime();
+		ListStorage.Contents contents = this.storage.load(logger, this.caseInsensitiveNamesGetter.getAsBoolean());
+		NameSet names = contents.names();
+		UuidStore uuids = contents.uuids();
+
+		this.snapshot.set(Snapshot.of(names, uuids, true));
+		this.index = null;
+		logger.info("{} loaded with {} names and {} uuids", this.name, names.size(), uuids.size());
+		long totalNanos = System.nanoTime() - start;
+		PluginMetrics.LIST_LOAD_SECONDS.labels(PluginMetrics.listLabel(this.name)).observeNanos(totalNanos);
+		return new LoadTimings(contents.readNanos(), contents.parseNanos(), totalNanos - contents.readNanos() - contents.parseNanos(), contents.source());
+	}
+
+	/**
+	 * Write the whole list into the storage
+	 */
 	public void save() throws IOException
 	{
-		Map<String, Object> options = Maps.newLinkedHashMap();
+		long start = System.nanoTime();
 
-		synchronized (this.lock)
+		// the modifications recorded before the save point are included in the snapshot
+		Snapshot current;
+		long savePoint;
+		synchronized (this.writeLock)
 		{
-			options.put("names", Lists.newArrayList(this.names));
-			List<Object> uuidList = this.uuids.entrySet().stream()
-					.map(e -> e.getValue() != null ? Map.of(e.getKey().toString(), e.getValue()) : e.getKey().toString())
-					.toList();
-			options.put("uuids", uuidList);
+			current = this.snapshot.get();
+			savePoint = this.storage.getSavePoint();
+		}
+
+		UuidStore replacement = this.storage.save(current.names(), current.uuids(), current.loadOk(), savePoint);
+		if (replacement != null)
+		{
+			synchronized (this.writeLock)
+			{
+				// otherwise there are newer modifications, which will be merged in the next save
+				if (this.snapshot.get() == current)
+				{
+					this.snapshot.set(current.withUuids(replacement));
+				}
+			}
 		}
 
-		FileUtils.dumpYaml(this.filePath, options);
+		PluginMetrics.LIST_SAVE_SECONDS.labels(PluginMetrics.listLabel(this.name)).observeNanos(System.nanoTime() - start);
 	}
 }
@@ -0,0 +1,168 @@
+package me.fallenbreath.velocitywhitelist.config;
+
+import me.fallenbreath.velocitywhitelist.storage.ListJournal;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Sorted views of a player list, for listing, searching and suggesting without going through the whole list every time
+ * <p>
+ * Names are ordered case-insensitively, and prefix matching is case-insensitive.
+ * The uuid entries are indexed by their player names, and by their uuids if the uuid storage cannot serve a uuid range by itself,
+ * see {@link UuidStore#isUuidRangeIndexed}
+ * <p>
+ * Reads never lock. Updates are made by {@link PlayerList} under its write lock
+ */
+class PlayerListIndex
+{
+	private record NameKey(String folded, String name)
+	{
+	}
+
+	private record UuidNameKey(String folded, String name, UUID uuid)
+	{
+	}
+
+	private static final Comparator<NameKey> NAME_KEY_ORDER = Comparator.comparing(NameKey::folded).thenComparing(NameKey::name);
+	private static final Comparator<UuidNameKey> UUID_NAME_KEY_ORDER = Comparator.comparing(UuidNameKey::folded).thenComparing(UuidNameKey::name).thenComparing(UuidNameKey::uuid, UuidStore.UUID_STRING_ORDER);
+	private static final UUID MIN_UUID = new UUID(0, 0);
+
+	private final ConcurrentSkipListSet<NameKey> names = new ConcurrentSkipListSet<>(NAME_KEY_ORDER);
+	private final ConcurrentSkipListSet<UuidNameKey> uuidNames = new ConcurrentSkipListSet<>(UUID_NAME_KEY_ORDER);
+	// null if the uuid storage serves uuid ranges by itself
+	private final @Nullable ConcurrentSkipListSet<UUID> uuids;
+
+	private PlayerListIndex(boolean indexUuids)
+	{
+		this.uuids = indexUuids ? new ConcurrentSkipListSet<>(UuidStore.UUID_STRING_ORDER) : null;
+	}
+
+	public static PlayerListIndex of(Collection<String> names, UuidStore uuids)
+	{
+		PlayerListIndex index = new PlayerListIndex(!uuids.isUuidRangeIndexed());
+		names.forEach(index::addName);
+		uuids.forEach((msb, lsb, name) -> {
+			UUID uuid = new UUID(msb, lsb);
+			if (index.uuids != null)
+			{
+				index.uuids.add(uuid);
+			}
+			if (name != null)
+			{
+				index.uuidNames.add(new UuidNameKey(fold(name), name, uuid));
+			}
+		});
+		return index;
+	}
+
+	private static String fold(String s)
+	{
+		return s.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @param before the uuid storage before the modification
+	 * @param after  the uuid storage after the modification. For a batch of modifications, it's the storage after the whole batch
+	 */
+	public void apply(ListJournal.Entry entry, UuidStore before, UuidStore after)
+	{
+		if (entry instanceof ListJournal.AddName e)
+		{
+			this.addName(e.name());
+		}
+		else if (entry instanceof ListJournal.RemoveName e)
+		{
+			this.names.remove(new NameKey(fold(e.name()), e.name()));
+		}
+		else if (entry instanceof ListJournal.PutUuid e)
+		{
+			this.updateUuid(e.uuid(), before, after);
+		}
+		else if (entry instanceof ListJournal.RemoveUuid e)
+		{
+			this.updateUuid(e.uuid(), before, after);
+		}
+	}
+
+	private void addName(String name)
+	{
+		this.names.add(new NameKey(fold(name), name));
+	}
+
+	public void updateUuid(UUID uuid, UuidStore before, UuidStore after)
+	{
+		boolean existed = before.contains(uuid), exists = after.contains(uuid);
+		@Nullable String oldName = existed ? before.getName(uuid) : null;
+		@Nullable String newName = exists ? after.getName(uuid) : null;
+		if (this.uuids != null && existed != exists)
+		{
+			if (exists)
+			{
+				this.uuids.add(uuid);
+			}
+			else
+			{
+				this.uuids.remove(uuid);
+			}
+		}
+		if (oldName != null && !oldName.equals(newName))
+		{
+			this.uuidNames.remove(new UuidNameKey(fold(oldName), oldName, uuid));
+		}
+		if (newName != null)
+		{
+			this.uuidNames.add(new UuidNameKey(fold(newName), newName, uuid));
+		}
+	}
+
+	public Stream<String> sortedNames()
+	{
+		return this.names.stream().map(NameKey::name);
+	}
+
+	public Stream<String> namesWithPrefix(String prefix)
+	{
+		String foldedPrefix = fold(prefix);
+		return this.names.tailSet(new NameKey(foldedPrefix, "")).stream().
+				takeWhile(key -> key.folded().startsWith(foldedPrefix)).
+				map(NameKey::name);
+	}
+
+	/**
+	 * Uuids of the entries whose player name starts with the given prefix, in case-insensitive name order
+	 */
+	public Stream<UUID> uuidsWithNamePrefix(String prefix)
+	{
+		return this.uuidNameKeysWithPrefix(prefix).map(UuidNameKey::uuid);
+	}
+
+	/**
+	 * Distinct player names of the uuid entries starting with the given prefix, in case-insensitive order
+	 */
+	public Stream<String> uuidNamesWithPrefix(String prefix)
+	{
+		return this.uuidNameKeysWithPrefix(prefix).map(UuidNameKey::name).distinct();
+	}
+
+	private Stream<UuidNameKey> uuidNameKeysWithPrefix(String prefix)
+	{
+		String foldedPrefix = fold(prefix);
+		return this.uuidNames.tailSet(new UuidNameKey(foldedPrefix, "", MIN_UUID)).stream().
+				takeWhile(key -> key.folded().startsWith(foldedPrefix));
+	}
+
+	/**
+	 * @return the uuids within [from, to] in {@link UuidStore#UUID_STRING_ORDER}, or null if the uuids are not indexed
+	 */
+	public @Nullable Stream<UUID> uuidRange(UUID from, UUID to)
+	{
+		return this.uuids != null ? this.uuids.subSet(from, true, to, true).stream() : null;
+	}
+}
@@ -0,0 +1,23 @@
+package me.fallenbreath.velocitywhitelist.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter
+{
+	private final LongAdder value = new LongAdder();
+
+	public void inc()
+	{
+		this.value.increment();
+	}
+
+	public void add(long amount)
+	{
+		this.value.add(amount);
+	}
+
+	public long get()
+	{
+		return this.value.sum();
+	}
+}
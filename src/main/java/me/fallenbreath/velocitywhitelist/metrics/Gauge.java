@@ -0,0 +1,28 @@
+package me.fallenbreath.velocitywhitelist.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Either holds a value that is set directly, or reads the value from a bound supplier
+ */
+public class Gauge
+{
+	private volatile double value = 0;
+	private volatile DoubleSupplier supplier = null;
+
+	public void set(double value)
+	{
+		this.value = value;
+	}
+
+	public void bind(DoubleSupplier supplier)
+	{
+		this.supplier = supplier;
+	}
+
+	public double get()
+	{
+		DoubleSupplier supplier = this.supplier;
+		return supplier != null ? supplier.getAsDouble() : this.value;
+	}
+}
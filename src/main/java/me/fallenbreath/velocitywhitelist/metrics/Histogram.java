@@ -0,0 +1,95 @@
+package me.fallenbreath.velocitywhitelist.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bucket histogram of durations, in seconds
+ */
+public class Histogram
+{
+	// upper bounds of the buckets, in seconds. Values above the last bound go to the implicit +Inf bucket
+	public static final double[] BUCKETS = {0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10};
+
+	private final LongAdder[] bucketCounts = new LongAdder[BUCKETS.length + 1];
+	private final DoubleAdder sum = new DoubleAdder();
+	private final LongAdder count = new LongAdder();
+
+	public Histogram()
+	{
+		for (int i = 0; i < this.bucketCounts.length; i++)
+		{
+			this.bucketCounts[i] = new LongAdder();
+		}
+	}
+
+	public void observeNanos(long nanos)
+	{
+		this.observe(nanos / (double)TimeUnit.SECONDS.toNanos(1));
+	}
+
+	public void observe(double seconds)
+	{
+		int i = 0;
+		while (i < BUCKETS.length && seconds > BUCKETS[i])
+		{
+			i++;
+		}
+		this.bucketCounts[i].increment();
+		this.sum.add(seconds);
+		this.count.increment();
+	}
+
+	public long getCount()
+	{
+		return this.count.sum();
+	}
+
+	public double getSum()
+	{
+		return this.sum.sum();
+	}
+
+	/**
+	 * @return the non-cumulative count of each bucket, with the +Inf bucket at the end
+	 */
+	public long[] getBucketCounts()
+	{
+		long[] counts = new long[this.bucketCounts.length];
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = this.bucketCounts[i].sum();
+		}
+		return counts;
+	}
+
+	/**
+	 * @return the upper bound of the bucket containing the given quantile, +Inf if it's beyond the last bucket,
+	 * or NaN if nothing has been observed yet
+	 */
+	public double estimateQuantile(double quantile)
+	{
+		long[] counts = this.getBucketCounts();
+		long total = 0;
+		for (long c : counts)
+		{
+			total += c;
+		}
+		if (total == 0)
+		{
+			return Double.NaN;
+		}
+		long rank = (long)Math.ceil(total * quantile);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS.length; i++)
+		{
+			seen += counts[i];
+			if (seen >= rank)
+			{
+				return BUCKETS[i];
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+}
@@ -0,0 +1,77 @@
+package me.fallenbreath.velocitywhitelist.metrics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A named metric, with one child metric per distinct combination of label values
+ */
+public class MetricFamily<T>
+{
+	public enum Type
+	{
+		COUNTER, GAUGE, HISTOGRAM
+	}
+
+	private final String name;
+	private final String help;
+	private final Type type;
+	private final List<String> labelNames;
+	private final Supplier<T> factory;
+	private final Map<List<String>, T> children = Maps.newConcurrentMap();
+
+	MetricFamily(String name, String help, Type type, List<String> labelNames, Supplier<T> factory)
+	{
+		this.name = name;
+		this.help = help;
+		this.type = type;
+		this.labelNames = ImmutableList.copyOf(labelNames);
+		this.factory = factory;
+	}
+
+	public String getName()
+	{
+		return this.name;
+	}
+
+	public String getHelp()
+	{
+		return this.help;
+	}
+
+	public Type getType()
+	{
+		return this.type;
+	}
+
+	public List<String> getLabelNames()
+	{
+		return this.labelNames;
+	}
+
+	public T labels(String... labelValues)
+	{
+		if (labelValues.length != this.labelNames.size())
+		{
+			throw new IllegalArgumentException(String.format("Metric %s expects %d label values, got %d", this.name, this.labelNames.size(), labelValues.length));
+		}
+		return this.children.computeIfAbsent(List.of(labelValues), k -> this.factory.get());
+	}
+
+	/**
+	 * Iterate the children, ordered by their label values
+	 */
+	public void forEachChild(BiConsumer<List<String>, T> consumer)
+	{
+		List<List<String>> keys = Lists.newArrayList(this.children.keySet());
+		keys.sort(Comparator.comparing(Object::toString));
+		keys.forEach(key -> consumer.accept(key, this.children.get(key)));
+	}
+}
@@ -0,0 +1,141 @@
+package me.fallenbreath.velocitywhitelist.metrics;
+
+import com.google.common.collect.Lists;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class MetricRegistry
+{
+	private final List<MetricFamily<?>> families = Lists.newCopyOnWriteArrayList();
+
+	private <T> MetricFamily<T> register(MetricFamily<T> family)
+	{
+		this.families.add(family);
+		return family;
+	}
+
+	public MetricFamily<Counter> counter(String name, String help, String... labelNames)
+	{
+		return this.register(new MetricFamily<>(name, help, MetricFamily.Type.COUNTER, List.of(labelNames), Counter::new));
+	}
+
+	public MetricFamily<Gauge> gauge(String name, String help, String... labelNames)
+	{
+		return this.register(new MetricFamily<>(name, help, MetricFamily.Type.GAUGE, List.of(labelNames), Gauge::new));
+	}
+
+	public MetricFamily<Histogram> histogram(String name, String help, String... labelNames)
+	{
+		return this.register(new MetricFamily<>(name, help, MetricFamily.Type.HISTOGRAM, List.of(labelNames), Histogram::new));
+	}
+
+	/**
+	 * Render all metrics in the Prometheus text exposition format
+	 */
+	public String toPrometheusText()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (MetricFamily<?> family : this.families)
+		{
+			sb.append("# HELP ").append(family.getName()).append(' ').append(family.getHelp()).append('\n');
+			sb.append("# TYPE ").append(family.getName()).append(' ').append(family.getType().name().toLowerCase()).append('\n');
+			family.forEachChild((labelValues, metric) -> {
+				String labels = formatLabels(family.getLabelNames(), labelValues, null);
+				if (metric instanceof Counter counter)
+				{
+					sb.append(family.getName()).append(labels).append(' ').append(counter.get()).append('\n');
+				}
+				else if (metric instanceof Gauge gauge)
+				{
+					sb.append(family.getName()).append(labels).append(' ').append(formatDouble(gauge.get())).append('\n');
+				}
+				else if (metric instanceof Histogram histogram)
+				{
+					long[] counts = histogram.getBucketCounts();
+					long cumulative = 0;
+					for (int i = 0; i < counts.length; i++)
+					{
+						cumulative += counts[i];
+						String le = i < Histogram.BUCKETS.length ? formatDouble(Histogram.BUCKETS[i]) : "+Inf";
+						sb.append(family.getName()).append("_bucket").append(formatLabels(family.getLabelNames(), labelValues, le)).append(' ').append(cumulative).append('\n');
+					}
+					sb.append(family.getName()).append("_sum").append(labels).append(' ').append(formatDouble(histogram.getSum())).append('\n');
+					sb.append(family.getName()).append("_count").append(labels).append(' ').append(histogram.getCount()).append('\n');
+				}
+			});
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * A short human-readable line for each metric
+	 */
+	public List<String> toSummaryLines()
+	{
+		List<String> lines = Lists.newArrayList();
+		for (MetricFamily<?> family : this.families)
+		{
+			family.forEachChild((labelValues, metric) -> {
+				String name = family.getName() + formatLabels(family.getLabelNames(), labelValues, null);
+				if (metric instanceof Counter counter)
+				{
+					lines.add(String.format("%s: %d", name, counter.get()));
+				}
+				else if (metric instanceof Gauge gauge)
+				{
+					lines.add(String.format("%s: %s", name, formatDouble(gauge.get())));
+				}
+				else if (metric instanceof Histogram histogram && histogram.getCount() > 0)
+				{
+					lines.add(String.format(
+							"%s: count %d, avg %.2fms, p50 <= %sms, p99 <= %sms",
+							name, histogram.getCount(), histogram.getSum() / histogram.getCount() * 1000,
+							formatDouble(histogram.estimateQuantile(0.5) * 1000), formatDouble(histogram.estimateQuantile(0.99) * 1000)
+					));
+				}
+			});
+		}
+		return lines;
+	}
+
+	private static String formatLabels(List<String> labelNames, List<String> labelValues, String le)
+	{
+		if (labelNames.isEmpty() && le == null)
+		{
+			return "";
+		}
+		List<String> parts = Lists.newArrayList();
+		for (int i = 0; i < labelNames.size(); i++)
+		{
+			parts.add(labelNames.get(i) + "=\"" + escapeLabelValue(labelValues.get(i)) + "\"");
+		}
+		if (le != null)
+		{
+			parts.add("le=\"" + le + "\"");
+		}
+		return "{" + String.join(",", parts) + "}";
+	}
+
+	private static String escapeLabelValue(String value)
+	{
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static String formatDouble(double value)
+	{
+		if (Double.isInfinite(value))
+		{
+			return value > 0 ? "+Inf" : "-Inf";
+		}
+		if (value == Math.rint(value) && Math.abs(value) < 1e15)
+		{
+			return Long.toString((long)value);
+		}
+		if (Double.isNaN(value))
+		{
+			return "NaN";
+		}
+		return BigDecimal.valueOf(value).toPlainString();
+	}
+}
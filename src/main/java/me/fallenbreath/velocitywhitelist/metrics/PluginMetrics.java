@@ -0,0 +1,56 @@
+package me.fallenbreath.velocitywhitelist.metrics;
+
+import java.util.Locale;
+
+/**
+ * All metrics of the plugin
+ */
+public class PluginMetrics
+{
+	public static final MetricRegistry REGISTRY = new MetricRegistry();
+
+	public static final MetricFamily<Counter> LOGIN_DECISIONS = REGISTRY.counter(
+			"velocitywhitelist_login_decisions_total", "Login checks made by each list", "list", "result"
+	);
+	public static final MetricFamily<Histogram> LOGIN_DECISION_SECONDS = REGISTRY.histogram(
+			"velocitywhitelist_login_decision_seconds", "Time from the login event to the decision of each list, including waiting for the list to load", "list"
+	);
+	public static final MetricFamily<Counter> LOGIN_TIMEOUTS = REGISTRY.counter(
+			"velocitywhitelist_login_timeouts_total", "Login checks that could not finish before the deadline", "policy"
+	);
+
+	public static final MetricFamily<Histogram> MOJANG_REQUEST_SECONDS = REGISTRY.histogram(
+			"velocitywhitelist_mojang_request_seconds", "Latency of requests to the mojang API", "api"
+	);
+	public static final MetricFamily<Counter> MOJANG_RESPONSES = REGISTRY.counter(
+			"velocitywhitelist_mojang_responses_total", "Responses from the mojang API by status code, or \"error\" if the request failed", "api", "status"
+	);
+	public static final MetricFamily<Gauge> MOJANG_CACHE = REGISTRY.gauge(
+			"velocitywhitelist_mojang_cache", "Statistics of the mojang API query cache", "stat"
+	);
+
+	public static final MetricFamily<Histogram> LIST_LOAD_SECONDS = REGISTRY.histogram(
+			"velocitywhitelist_list_load_seconds", "Time spent on loading a player list", "list"
+	);
+	public static final MetricFamily<Histogram> LIST_SAVE_SECONDS = REGISTRY.histogram(
+			"velocitywhitelist_list_save_seconds", "Time spent on writing a player list file", "list"
+	);
+	public static final MetricFamily<Gauge> LIST_SAVE_BYTES = REGISTRY.gauge(
+			"velocitywhitelist_list_last_save_bytes", "Size of the latest written player list file", "list"
+	);
+	public static final MetricFamily<Gauge> LIST_ENTRIES = REGISTRY.gauge(
+			"velocitywhitelist_list_entries", "Amount of entries in a player list", "list", "kind"
+	);
+
+	public static final MetricFamily<Counter> COMMANDS = REGISTRY.counter(
+			"velocitywhitelist_commands_total", "Executed plugin commands", "command"
+	);
+
+	/**
+	 * e.g. "Whitelist" -> "whitelist"
+	 */
+	public static String listLabel(String listName)
+	{
+		return listName.toLowerCase(Locale.ROOT);
+	}
+}
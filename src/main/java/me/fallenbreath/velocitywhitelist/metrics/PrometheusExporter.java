@@ -0,0 +1,122 @@
+package me.fallenbreath.velocitywhitelist.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import me.fallenbreath.velocitywhitelist.config.Configuration;
+import me.fallenbreath.velocitywhitelist.utils.FileUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically renders the plugin metrics in the Prometheus text format,
+ * and writes them to a file, and / or serves them on a localhost-only http port
+ */
+public class PrometheusExporter
+{
+	private final Logger logger;
+	private final Configuration config;
+	private final Path dataDirectory;
+	private @Nullable ScheduledExecutorService executor = null;
+	private @Nullable HttpServer httpServer = null;
+	private volatile byte[] latestText = new byte[0];
+
+	public PrometheusExporter(Logger logger, Configuration config, Path dataDirectory)
+	{
+		this.logger = logger;
+		this.config = config;
+		this.dataDirectory = dataDirectory;
+	}
+
+	/**
+	 * Does nothing if neither the export file nor the export port is configured,
+	 * or if the port is the only target and it cannot be bound
+	 */
+	public synchronized void start()
+	{
+		String fileName = this.config.getMetricsExportFile();
+		int port = this.config.getMetricsExportPort();
+		if ((fileName.isEmpty() && port == 0) || this.executor != null)
+		{
+			return;
+		}
+
+		@Nullable Path filePath = fileName.isEmpty() ? null : this.dataDirectory.resolve(fileName);
+		if (port != 0)
+		{
+			try
+			{
+				this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+				this.httpServer.createContext("/metrics", this::handleRequest);
+				this.httpServer.start();
+				this.logger.info("Serving metrics on http://{}:{}/metrics", InetAddress.getLoopbackAddress().getHostAddress(), port);
+			}
+			catch (IOException e)
+			{
+				this.logger.error("Failed to serve metrics on localhost port {}", port, e);
+				this.httpServer = null;
+			}
+		}
+		if (this.httpServer == null && filePath == null)
+		{
+			return;
+		}
+
+		this.executor = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Metrics Exporter").setDaemon(true).build()
+		);
+		long intervalSeconds = this.config.getMetricsExportIntervalSeconds();
+		this.executor.scheduleWithFixedDelay(() -> this.export(filePath), 0, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	private void export(@Nullable Path filePath)
+	{
+		this.latestText = PluginMetrics.REGISTRY.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+		if (filePath != null)
+		{
+			try
+			{
+				FileUtils.safeWrite(filePath, this.latestText);
+			}
+			catch (IOException e)
+			{
+				this.logger.warn("Failed to write metrics to {}: {}", filePath, e.toString());
+			}
+		}
+	}
+
+	private void handleRequest(HttpExchange exchange) throws IOException
+	{
+		byte[] body = this.latestText;
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+	}
+
+	public synchronized void stop()
+	{
+		if (this.httpServer != null)
+		{
+			this.httpServer.stop(0);
+			this.httpServer = null;
+		}
+		if (this.executor != null)
+		{
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * An embedded H2 database file, shared by the {@link SqlListStorage} of all lists
+ * <p>
+ * Uses a single connection, which is opened on first use. All accesses are serialized
+ */
+public class ListDatabase
+{
+	private static final String[] SCHEMA = {
+			"CREATE TABLE IF NOT EXISTS player_lists (list_key VARCHAR(64) PRIMARY KEY)",
+			// epoch millis of the import from the yaml list file
+			"ALTER TABLE player_lists ADD COLUMN IF NOT EXISTS imported_at BIGINT",
+			"CREATE TABLE IF NOT EXISTS player_names (list_key VARCHAR(64) NOT NULL, name VARCHAR(255) NOT NULL, PRIMARY KEY (list_key, name))",
+			"CREATE TABLE IF NOT EXISTS player_uuids (list_key VARCHAR(64) NOT NULL, uuid UUID NOT NULL, name VARCHAR(255), PRIMARY KEY (list_key, uuid))",
+			"CREATE INDEX IF NOT EXISTS player_uuids_name ON player_uuids (list_key, name)",
+	};
+
+	private final Logger logger;
+	private final Path path;
+	private @Nullable Connection connection = null;
+
+	@FunctionalInterface
+	public interface SqlAction<T>
+	{
+		T run(Connection connection) throws SQLException;
+	}
+
+	/**
+	 * @param path the database file path without the ".mv.db" extension
+	 */
+	public ListDatabase(Logger logger, Path path)
+	{
+		this.logger = logger;
+		this.path = path;
+	}
+
+	private Connection getConnection() throws SQLException
+	{
+		if (this.connection == null || this.connection.isClosed())
+		{
+			// the driver is used directly, since DriverManager does not see the drivers inside the plugin class loader
+			// the proxy shutdown closes the database explicitly, so it should not be closed by the jvm shutdown hook of h2
+			String url = "jdbc:h2:file:" + this.path.toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+			Connection connection = new org.h2.Driver().connect(url, new Properties());
+			try (Statement statement = connection.createStatement())
+			{
+				for (String sql : SCHEMA)
+				{
+					statement.execute(sql);
+				}
+			}
+			this.connection = connection;
+			this.logger.debug("Opened list database {}", this.path);
+		}
+		return this.connection;
+	}
+
+	public synchronized <T> T execute(SqlAction<T> action) throws SQLException
+	{
+		return action.run(this.getConnection());
+	}
+
+	/**
+	 * Run the action in a transaction, which gets rolled back if the action fails
+	 */
+	public synchronized <T> T executeInTransaction(SqlAction<T> action) throws SQLException
+	{
+		Connection connection = this.getConnection();
+		connection.setAutoCommit(false);
+		try
+		{
+			T result = action.run(connection);
+			connection.commit();
+			return result;
+		}
+		catch (SQLException | RuntimeException e)
+		{
+			connection.rollback();
+			throw e;
+		}
+		finally
+		{
+			connection.setAutoCommit(true);
+		}
+	}
+
+	public synchronized void close()
+	{
+		if (this.connection != null)
+		{
+			try
+			{
+				this.connection.close();
+			}
+			catch (SQLException e)
+			{
+				this.logger.warn("Failed to close list database {}", this.path, e);
+			}
+			this.connection = null;
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the modifications made to a player list since its file was last written
+ * <p>
+ * Record layout: [int payload length][int payload crc32][payload], where payload is [byte op][op arguments].
+ * A torn or corrupted record at the end of the file, e.g. caused by a crash during an append, is discarded
+ */
+public class ListJournal
+{
+	private static final byte OP_ADD_NAME = 1;
+	private static final byte OP_REMOVE_NAME = 2;
+	private static final byte OP_PUT_UUID = 3;
+	private static final byte OP_REMOVE_UUID = 4;
+	private static final int HEADER_SIZE = 8;
+	private static final int MAX_PAYLOAD_SIZE = 1 << 16;
+
+	public sealed interface Entry permits AddName, RemoveName, PutUuid, RemoveUuid
+	{
+	}
+
+	public record AddName(String name) implements Entry
+	{
+	}
+
+	public record RemoveName(String name) implements Entry
+	{
+	}
+
+	public record PutUuid(UUID uuid, @Nullable String name) implements Entry
+	{
+	}
+
+	public record RemoveUuid(UUID uuid) implements Entry
+	{
+	}
+
+	private final Logger logger;
+	private final Path path;
+	private final BooleanSupplier enabledGetter;
+	private final BooleanSupplier fsyncGetter;
+	private @Nullable FileChannel channel = null;
+	private boolean broken = false;
+
+	public ListJournal(Logger logger, Path path, BooleanSupplier enabledGetter, BooleanSupplier fsyncGetter)
+	{
+		this.logger = logger;
+		this.path = path;
+		this.enabledGetter = enabledGetter;
+		this.fsyncGetter = fsyncGetter;
+	}
+
+	public Path getPath()
+	{
+		return this.path;
+	}
+
+	public boolean isEnabled()
+	{
+		return this.enabledGetter.getAsBoolean();
+	}
+
+	/**
+	 * A broken journal is missing some modifications, so the list file needs to be fully rewritten
+	 */
+	public synchronized boolean isBroken()
+	{
+		return this.broken;
+	}
+
+	public synchronized long size()
+	{
+		try
+		{
+			if (this.channel != null)
+			{
+				return this.channel.size();
+			}
+			return Files.isRegularFile(this.path) ? Files.size(this.path) : 0;
+		}
+		catch (IOException e)
+		{
+			return 0;
+		}
+	}
+
+	private FileChannel getChannel() throws IOException
+	{
+		if (this.channel == null)
+		{
+			this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.channel.position(this.channel.size());
+		}
+		return this.channel;
+	}
+
+	/**
+	 * Does nothing if the journal is disabled
+	 */
+	public synchronized void append(Entry entry)
+	{
+		if (!this.isEnabled() || this.broken)
+		{
+			return;
+		}
+
+		ByteBuffer payload = encode(entry);
+		CRC32 crc = new CRC32();
+		crc.update(payload.duplicate());
+
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.remaining());
+		record.putInt(payload.remaining());
+		record.putInt((int)crc.getValue());
+		record.put(payload);
+		record.flip();
+
+		try
+		{
+			FileChannel channel = this.getChannel();
+			while (record.hasRemaining())
+			{
+				channel.write(record);
+			}
+			if (this.fsyncGetter.getAsBoolean())
+			{
+				channel.force(false);
+			}
+		}
+		catch (IOException e)
+		{
+			this.logger.error("Failed to append to journal {}, falling back to full file rewrite", this.path, e);
+			this.broken = true;
+		}
+	}
+
+	/**
+	 * Read all valid records in order. A torn tail gets truncated, so following appends stay readable
+	 */
+	public synchronized void replay(Consumer<Entry> consumer) throws IOException
+	{
+		if (!Files.isRegularFile(this.path))
+		{
+			return;
+		}
+
+		FileChannel channel = this.getChannel();
+		long fileSize = channel.size();
+		long validSize = 0;
+		int count = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (validSize + HEADER_SIZE <= fileSize)
+		{
+			header.clear();
+			readFully(channel, header, validSize);
+			header.flip();
+			int length = header.getInt();
+			int checksum = header.getInt();
+			if (length <= 0 || length > MAX_PAYLOAD_SIZE || validSize + HEADER_SIZE + length > fileSize)
+			{
+				break;
+			}
+
+			ByteBuffer payload = ByteBuffer.allocate(length);
+			readFully(channel, payload, validSize + HEADER_SIZE);
+			payload.flip();
+			CRC32 crc = new CRC32();
+			crc.update(payload.duplicate());
+			if ((int)crc.getValue() != checksum)
+			{
+				break;
+			}
+
+			Entry entry;
+			try
+			{
+				entry = decode(payload);
+			}
+			catch (RuntimeException e)
+			{
+				break;
+			}
+			consumer.accept(entry);
+			validSize += HEADER_SIZE + length;
+			count++;
+		}
+
+		if (validSize < fileSize)
+		{
+			this.logger.warn("Discarding {} bytes of torn or corrupted data at the end of journal {}", fileSize - validSize, this.path);
+			channel.truncate(validSize);
+		}
+		channel.position(validSize);
+		if (count > 0)
+		{
+			this.logger.info("Replayed {} records from journal {}", count, this.path);
+		}
+	}
+
+	/**
+	 * Drop the first given bytes of the journal, since they are already included in the list file
+	 * <p>
+	 * The rest is written to a new file which then atomically replaces the journal,
+	 * so the records after the prefix are never lost, even if the compaction fails halfway
+	 */
+	public synchronized void discardPrefix(long prefixLength) throws IOException
+	{
+		if (this.channel == null && !Files.isRegularFile(this.path))
+		{
+			this.broken = false;
+			return;
+		}
+
+		FileChannel channel = this.getChannel();
+		long size = channel.size();
+		ByteBuffer tail = ByteBuffer.allocate((int)Math.max(0, size - prefixLength));
+		readFully(channel, tail, prefixLength);
+		tail.flip();
+
+		Path tempPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+		try
+		{
+			try (FileChannel tempChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				while (tail.hasRemaining())
+				{
+					tempChannel.write(tail);
+				}
+				tempChannel.force(true);
+			}
+
+			// closed before the move, since an open file cannot be replaced on some platforms. Reopened on the next use
+			this.close();
+			Files.move(tempPath, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			Files.deleteIfExists(tempPath);
+		}
+		this.broken = false;
+	}
+
+	public synchronized void close()
+	{
+		if (this.channel != null)
+		{
+			try
+			{
+				this.channel.close();
+			}
+			catch (IOException e)
+			{
+				this.logger.warn("Failed to close journal {}", this.path, e);
+			}
+			this.channel = null;
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException
+	{
+		while (buf.hasRemaining())
+		{
+			int n = channel.read(buf, position + buf.position());
+			if (n < 0)
+			{
+				throw new IOException("Unexpected end of journal");
+			}
+		}
+	}
+
+	/**
+	 * Also used for sending the modifications to other proxies
+	 */
+	public static ByteBuffer encode(Entry entry)
+	{
+		ByteBuffer buf;
+		if (entry instanceof AddName e)
+		{
+			byte[] name = e.name().getBytes(StandardCharsets.UTF_8);
+			buf = ByteBuffer.allocate(1 + 4 + name.length).put(OP_ADD_NAME).putInt(name.length).put(name);
+		}
+		else if (entry instanceof RemoveName e)
+		{
+			byte[] name = e.name().getBytes(StandardCharsets.UTF_8);
+			buf = ByteBuffer.allocate(1 + 4 + name.length).put(OP_REMOVE_NAME).putInt(name.length).put(name);
+		}
+		else if (entry instanceof PutUuid e)
+		{
+			byte[] name = e.name() != null ? e.name().getBytes(StandardCharsets.UTF_8) : null;
+			buf = ByteBuffer.allocate(1 + 16 + 4 + (name != null ? name.length : 0)).put(OP_PUT_UUID)
+					.putLong(e.uuid().getMostSignificantBits()).putLong(e.uuid().getLeastSignificantBits());
+			if (name != null)
+			{
+				buf.putInt(name.length).put(name);
+			}
+			else
+			{
+				buf.putInt(-1);
+			}
+		}
+		else if (entry instanceof RemoveUuid e)
+		{
+			buf = ByteBuffer.allocate(1 + 16).put(OP_REMOVE_UUID)
+					.putLong(e.uuid().getMostSignificantBits()).putLong(e.uuid().getLeastSignificantBits());
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown journal entry " + entry);
+		}
+		return buf.flip();
+	}
+
+	private static @Nullable String readString(ByteBuffer buf)
+	{
+		int length = buf.getInt();
+		if (length < 0)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static Entry decode(ByteBuffer buf)
+	{
+		byte op = buf.get();
+		return switch (op)
+		{
+			case OP_ADD_NAME -> new AddName(Objects.requireNonNull(readString(buf)));
+			case OP_REMOVE_NAME -> new RemoveName(Objects.requireNonNull(readString(buf)));
+			case OP_PUT_UUID -> new PutUuid(new UUID(buf.getLong(), buf.getLong()), readString(buf));
+			case OP_REMOVE_UUID -> new RemoveUuid(new UUID(buf.getLong(), buf.getLong()));
+			default -> throw new IllegalArgumentException("Unknown journal op " + op);
+		};
+	}
+}
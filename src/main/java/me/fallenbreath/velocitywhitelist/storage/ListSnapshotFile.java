@@ -0,0 +1,153 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import me.fallenbreath.velocitywhitelist.utils.FileUtils;
+import me.fallenbreath.velocitywhitelist.utils.NameSet;
+import me.fallenbreath.velocitywhitelist.utils.UuidMap;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * A binary copy of a player list file, which is way faster to load than the yaml file.
+ * It's only used when it's known to be written from the current content of the yaml file,
+ * so the yaml file stays the source of truth
+ * <p>
+ * File layout:
+ * [int magic][int version][long yaml mtime][long yaml size][int yaml crc32]
+ * [int name count][name count * (short length, utf8 name)]
+ * [int uuid count][uuid count * (long msb, long lsb)][uuid count * (int length or -1 for null, utf8 name)]
+ * [int crc32 of all previous bytes]
+ */
+public class ListSnapshotFile
+{
+	private static final int MAGIC = 0x56574c53;  // "VWLS"
+	private static final int VERSION = 1;
+
+	public record Contents(NameSet names, UuidMap uuids)
+	{
+	}
+
+	public static void write(Path snapshotPath, Path yamlPath, byte[] yamlContent, Collection<String> names, UuidStore uuids) throws IOException
+	{
+		CRC32 yamlCrc = new CRC32();
+		yamlCrc.update(yamlContent);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + names.size() * 20 + uuids.size() * 36);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(Files.getLastModifiedTime(yamlPath).toMillis());
+		out.writeLong(yamlContent.length);
+		out.writeInt((int)yamlCrc.getValue());
+
+		out.writeInt(names.size());
+		for (String name : names)
+		{
+			byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+			out.writeShort(nameBytes.length);
+			out.write(nameBytes);
+		}
+
+		var uuidEntries = uuids.entries();
+		out.writeInt(uuidEntries.size());
+		for (var entry : uuidEntries)
+		{
+			out.writeLong(entry.getKey().getMostSignificantBits());
+			out.writeLong(entry.getKey().getLeastSignificantBits());
+		}
+		for (var entry : uuidEntries)
+		{
+			if (entry.getValue() != null)
+			{
+				byte[] nameBytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(nameBytes.length);
+				out.write(nameBytes);
+			}
+			else
+			{
+				out.writeInt(-1);
+			}
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeInt((int)crc.getValue());
+		FileUtils.safeWrite(snapshotPath, bytes.toByteArray());
+	}
+
+	/**
+	 * @return null if the snapshot file does not exist, is corrupted, or does not match the current yaml file
+	 */
+	public static @Nullable Contents read(Path snapshotPath, Path yamlPath, boolean caseInsensitiveNames) throws IOException
+	{
+		if (!Files.isRegularFile(snapshotPath) || !Files.isRegularFile(yamlPath))
+		{
+			return null;
+		}
+
+		ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+		if (buf.remaining() < 32 || buf.getInt() != MAGIC || buf.getInt() != VERSION)
+		{
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), 0, buf.limit() - 4);
+		if ((int)crc.getValue() != buf.getInt(buf.limit() - 4))
+		{
+			return null;
+		}
+
+		// cheap checks first, then make sure the yaml content is really the same
+		long yamlMtime = buf.getLong();
+		long yamlSize = buf.getLong();
+		int yamlCrc = buf.getInt();
+		if (Files.getLastModifiedTime(yamlPath).toMillis() != yamlMtime || Files.size(yamlPath) != yamlSize || FileUtils.crc32Of(yamlPath) != yamlCrc)
+		{
+			return null;
+		}
+
+		try
+		{
+			int nameCount = buf.getInt();
+			NameSet names = new NameSet(caseInsensitiveNames, nameCount);
+			for (int i = 0; i < nameCount; i++)
+			{
+				names.add(readString(buf, Short.toUnsignedInt(buf.getShort())));
+			}
+
+			int uuidCount = buf.getInt();
+			UuidMap uuids = new UuidMap(uuidCount);
+			int uuidNamesPos = buf.position() + uuidCount * 16;
+			ByteBuffer uuidNames = buf.duplicate().position(uuidNamesPos);
+			for (int i = 0; i < uuidCount; i++)
+			{
+				long msb = buf.getLong();
+				long lsb = buf.getLong();
+				int nameLength = uuidNames.getInt();
+				uuids.put(msb, lsb, nameLength >= 0 ? readString(uuidNames, nameLength) : null);
+			}
+			return new Contents(names, uuids);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e)
+		{
+			return null;
+		}
+	}
+
+	private static String readString(ByteBuffer buf, int length)
+	{
+		String s = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+		buf.position(buf.position() + length);
+		return s;
+	}
+}
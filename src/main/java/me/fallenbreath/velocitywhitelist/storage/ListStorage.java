@@ -0,0 +1,72 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import me.fallenbreath.velocitywhitelist.utils.NameSet;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the content of a player list is persisted
+ * <p>
+ * Every modification is handed to {@link #record} as it happens.
+ * A storage that cannot persist single modifications by itself asks for a full {@link #save} with {@link #isSaveNeeded}
+ */
+public interface ListStorage
+{
+	/**
+	 * @param readNanos time spent on reading a binary copy of the list, or querying the database
+	 * @param parseNanos time spent on parsing the yaml file, if there's no usable binary copy
+	 * @param source where the content comes from, for logging
+	 */
+	record Contents(NameSet names, UuidStore uuids, long readNanos, long parseNanos, String source)
+	{
+	}
+
+	/**
+	 * Read the whole list content, including all recorded modifications
+	 */
+	Contents load(Logger logger, boolean caseInsensitiveNames) throws IOException;
+
+	/**
+	 * Persist a single modification. Invoked under the write lock of the list, in the order of the modifications
+	 */
+	void record(ListJournal.Entry entry);
+
+	/**
+	 * Persist the modifications of a bulk operation, e.g. an import
+	 */
+	default void recordAll(List<ListJournal.Entry> entries)
+	{
+		entries.forEach(this::record);
+	}
+
+	/**
+	 * If the recorded modifications need a {@link #save} to be fully persisted
+	 */
+	boolean isSaveNeeded();
+
+	/**
+	 * Invoked under the write lock of the list, when the content to save is taken.
+	 * The returned value is passed to {@link #save}
+	 */
+	long getSavePoint();
+
+	/**
+	 * Write the whole list content
+	 *
+	 * @param includesRecorded if the content includes all modifications recorded before the save point.
+	 *                         It's false if the list has not been loaded successfully
+	 * @return a replacement of the saved uuids which serves the same content, or null if there's none
+	 */
+	@Nullable UuidStore save(NameSet names, UuidStore uuids, boolean includesRecorded, long savePoint) throws IOException;
+
+	/**
+	 * If the stored content is modified by someone else since we last loaded or saved it
+	 */
+	boolean isModifiedExternally();
+
+	void close();
+}
@@ -0,0 +1,498 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import me.fallenbreath.velocitywhitelist.utils.FileUtils;
+import me.fallenbreath.velocitywhitelist.utils.NameSet;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * A binary copy of a player list file like {@link ListSnapshotFile}, but the uuid part is memory-mapped instead of being loaded into the heap
+ * <p>
+ * The uuids are sorted by (msb, lsb) in signed order with a fixed width of 16 bytes, so they can be binary-searched in place.
+ * Their order in the yaml file is kept in a separate section, so saving the list does not reorder the yaml file.
+ * The file is only used when it's known to be written from the current content of the yaml file.
+ * It's never modified after being written, and it's not checksummed as a whole, since that would read the whole file during the load
+ * <p>
+ * File layout:
+ * [int magic][int version][long yaml mtime][long yaml size][int yaml crc32][int name count][int uuid count][int reserved]
+ * [long uuid keys offset][long uuid name refs offset][long uuid names offset][long uuid order offset][long file size]
+ * [name count * (short length, utf8 name)]
+ * [padding to 8 bytes][uuid count * (long msb, long lsb)]
+ * [uuid count * (long offset in the uuid names section, or -1 for null)]
+ * [(int length, utf8 name) for each non-null uuid name]
+ * [padding to 4 bytes][uuid count * (int index of the sorted uuid)], in the yaml file order
+ */
+public class MappedListFile
+{
+	private static final int MAGIC = 0x56574c4d;  // "VWLM"
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 80;
+	private static final int KEY_SIZE = 16;
+	private static final int NAME_REF_SIZE = 8;
+	private static final int ORDER_SIZE = 4;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	public record Contents(NameSet names, MappedUuidStore uuids)
+	{
+	}
+
+	private final int uuidCount;
+	private final ByteBuffer keys;
+	private final ByteBuffer nameRefs;
+	private final ByteBuffer uuidNames;
+	private final ByteBuffer order;
+
+	private MappedListFile(int uuidCount, ByteBuffer keys, ByteBuffer nameRefs, ByteBuffer uuidNames, ByteBuffer order)
+	{
+		this.uuidCount = uuidCount;
+		this.keys = keys;
+		this.nameRefs = nameRefs;
+		this.uuidNames = uuidNames;
+		this.order = order;
+	}
+
+	public int getUuidCount()
+	{
+		return this.uuidCount;
+	}
+
+	long getMsb(int index)
+	{
+		return this.keys.getLong(index * KEY_SIZE);
+	}
+
+	long getLsb(int index)
+	{
+		return this.keys.getLong(index * KEY_SIZE + 8);
+	}
+
+	/**
+	 * @return the index of the uuid at the given position in the yaml file order
+	 */
+	int getSortedIndex(int position)
+	{
+		return this.order.getInt(position * ORDER_SIZE);
+	}
+
+	/**
+	 * @return the amount of uuids less than the given uuid, or not greater than it if orEqual is set
+	 */
+	int countBelow(long msb, long lsb, boolean orEqual)
+	{
+		int low = 0;
+		int high = this.uuidCount;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			int c = Long.compare(this.getMsb(mid), msb);
+			if (c == 0)
+			{
+				c = Long.compare(this.getLsb(mid), lsb);
+			}
+			if (c < 0 || (orEqual && c == 0))
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the index of the given uuid, or -1 if absent
+	 */
+	int indexOf(long msb, long lsb)
+	{
+		return indexOf(this.keys, this.uuidCount, msb, lsb);
+	}
+
+	private static int indexOf(ByteBuffer keys, int uuidCount, long msb, long lsb)
+	{
+		int low = 0;
+		int high = uuidCount - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			int c = Long.compare(keys.getLong(mid * KEY_SIZE), msb);
+			if (c == 0)
+			{
+				c = Long.compare(keys.getLong(mid * KEY_SIZE + 8), lsb);
+			}
+			if (c < 0)
+			{
+				low = mid + 1;
+			}
+			else if (c > 0)
+			{
+				high = mid - 1;
+			}
+			else
+			{
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	@Nullable String getName(int index)
+	{
+		long ref = this.nameRefs.getLong(index * NAME_REF_SIZE);
+		if (ref < 0)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[this.uuidNames.getInt((int)ref)];
+		this.uuidNames.get((int)ref + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return null if the file does not exist, is malformed, or does not match the current yaml file
+	 */
+	public static @Nullable Contents read(Path mappedPath, Path yamlPath, boolean caseInsensitiveNames) throws IOException
+	{
+		if (!Files.isRegularFile(mappedPath) || !Files.isRegularFile(yamlPath))
+		{
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(mappedPath, StandardOpenOption.READ))
+		{
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE)
+			{
+				return null;
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+			{
+			}
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION)
+			{
+				return null;
+			}
+
+			long yamlMtime = header.getLong();
+			long yamlSize = header.getLong();
+			int yamlCrc = header.getInt();
+			if (Files.getLastModifiedTime(yamlPath).toMillis() != yamlMtime || Files.size(yamlPath) != yamlSize || FileUtils.crc32Of(yamlPath) != yamlCrc)
+			{
+				return null;
+			}
+
+			int nameCount = header.getInt();
+			int uuidCount = header.getInt();
+			header.getInt();
+			long keysOffset = header.getLong();
+			long nameRefsOffset = header.getLong();
+			long uuidNamesOffset = header.getLong();
+			long orderOffset = header.getLong();
+			boolean valid = nameCount >= 0 && uuidCount >= 0 && (long)uuidCount * KEY_SIZE <= Integer.MAX_VALUE &&
+					keysOffset >= HEADER_SIZE && keysOffset - HEADER_SIZE <= Integer.MAX_VALUE &&
+					nameRefsOffset == keysOffset + (long)uuidCount * KEY_SIZE &&
+					uuidNamesOffset == nameRefsOffset + (long)uuidCount * NAME_REF_SIZE &&
+					orderOffset >= uuidNamesOffset && orderOffset - uuidNamesOffset <= Integer.MAX_VALUE &&
+					orderOffset + (long)uuidCount * ORDER_SIZE == fileSize && header.getLong() == fileSize;
+			if (!valid)
+			{
+				return null;
+			}
+
+			NameSet names = new NameSet(caseInsensitiveNames, nameCount);
+			try
+			{
+				ByteBuffer nameBuf = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, keysOffset - HEADER_SIZE);
+				for (int i = 0; i < nameCount; i++)
+				{
+					byte[] bytes = new byte[Short.toUnsignedInt(nameBuf.getShort())];
+					nameBuf.get(bytes);
+					names.add(new String(bytes, StandardCharsets.UTF_8));
+				}
+			}
+			catch (BufferUnderflowException e)
+			{
+				return null;
+			}
+
+			MappedListFile file = map(channel, uuidCount, keysOffset, nameRefsOffset, uuidNamesOffset, orderOffset);
+			return new Contents(names, new MappedUuidStore(file));
+		}
+	}
+
+	private static MappedListFile map(FileChannel channel, int uuidCount, long keysOffset, long nameRefsOffset, long uuidNamesOffset, long orderOffset) throws IOException
+	{
+		// the mappings stay valid after the channel is closed
+		return new MappedListFile(
+				uuidCount,
+				channel.map(FileChannel.MapMode.READ_ONLY, keysOffset, (long)uuidCount * KEY_SIZE),
+				channel.map(FileChannel.MapMode.READ_ONLY, nameRefsOffset, (long)uuidCount * NAME_REF_SIZE),
+				channel.map(FileChannel.MapMode.READ_ONLY, uuidNamesOffset, orderOffset - uuidNamesOffset),
+				channel.map(FileChannel.MapMode.READ_ONLY, orderOffset, (long)uuidCount * ORDER_SIZE)
+		);
+	}
+
+	@FunctionalInterface
+	private interface SortedEntries
+	{
+		void forEach(UuidStore.EntryConsumer consumer);
+	}
+
+	/**
+	 * Write the given list content into the mapped list file, then map the written file
+	 * <p>
+	 * The iteration order of the given uuids is kept as the yaml file order
+	 */
+	public static MappedUuidStore write(Path mappedPath, Path yamlPath, Collection<String> names, UuidStore uuids) throws IOException
+	{
+		int uuidCount = uuids.size();
+		if ((long)uuidCount * KEY_SIZE > Integer.MAX_VALUE)
+		{
+			throw new IOException("Too many uuids for a mapped list file: " + uuidCount);
+		}
+		SortedEntries entries = uuids instanceof MappedUuidStore mapped ? mapped::forEachSorted : sortedEntriesOf(uuids);
+
+		long yamlMtime = Files.getLastModifiedTime(yamlPath).toMillis();
+		long yamlSize = Files.size(yamlPath);
+		int yamlCrc = FileUtils.crc32Of(yamlPath);
+
+		long keysOffset, nameRefsOffset, uuidNamesOffset, orderOffset, fileSize;
+		Path tempPath = FileUtils.createTempSibling(mappedPath);
+		try
+		{
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+				out.write(new byte[HEADER_SIZE]);
+
+				long position = HEADER_SIZE;
+				for (String name : names)
+				{
+					byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+					out.writeShort(nameBytes.length);
+					out.write(nameBytes);
+					position += 2 + nameBytes.length;
+				}
+				keysOffset = (position + 7) & ~7;
+				out.write(new byte[(int)(keysOffset - position)]);
+				nameRefsOffset = keysOffset + (long)uuidCount * KEY_SIZE;
+				uuidNamesOffset = nameRefsOffset + (long)uuidCount * NAME_REF_SIZE;
+
+				long[] written = new long[2];
+				try
+				{
+					entries.forEach((msb, lsb, name) -> {
+						writeUnchecked(() -> {
+							out.writeLong(msb);
+							out.writeLong(lsb);
+						});
+						written[0]++;
+					});
+					entries.forEach((msb, lsb, name) -> writeUnchecked(() -> {
+						if (name != null)
+						{
+							out.writeLong(written[1]);
+							written[1] += 4 + name.getBytes(StandardCharsets.UTF_8).length;
+						}
+						else
+						{
+							out.writeLong(-1);
+						}
+					}));
+					entries.forEach((msb, lsb, name) -> writeUnchecked(() -> {
+						if (name != null)
+						{
+							byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+							out.writeInt(nameBytes.length);
+							out.write(nameBytes);
+						}
+					}));
+				}
+				catch (UncheckedIOException e)
+				{
+					throw e.getCause();
+				}
+				if (written[0] != uuidCount || written[1] > Integer.MAX_VALUE)
+				{
+					throw new IOException("Unexpected uuid count or uuid names size: " + written[0] + ", " + written[1]);
+				}
+				long uuidNamesEnd = uuidNamesOffset + written[1];
+				orderOffset = (uuidNamesEnd + ORDER_SIZE - 1) & ~(ORDER_SIZE - 1);
+				out.write(new byte[(int)(orderOffset - uuidNamesEnd)]);
+				out.flush();
+
+				// the sorted uuids just written are searched for the index of each uuid in the given order
+				ByteBuffer writtenKeys = channel.map(FileChannel.MapMode.READ_ONLY, keysOffset, (long)uuidCount * KEY_SIZE);
+				int[] ordered = {0};
+				try
+				{
+					uuids.forEach((msb, lsb, name) -> writeUnchecked(() -> {
+						int index = indexOf(writtenKeys, uuidCount, msb, lsb);
+						if (index < 0)
+						{
+							throw new IOException("Uuid " + new UUID(msb, lsb) + " is missing in the sorted uuids");
+						}
+						out.writeInt(index);
+						ordered[0]++;
+					}));
+				}
+				catch (UncheckedIOException e)
+				{
+					throw e.getCause();
+				}
+				if (ordered[0] != uuidCount)
+				{
+					throw new IOException("Unexpected ordered uuid count: " + ordered[0]);
+				}
+				out.flush();
+				fileSize = orderOffset + (long)uuidCount * ORDER_SIZE;
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(VERSION);
+				header.putLong(yamlMtime).putLong(yamlSize).putInt(yamlCrc);
+				header.putInt(names.size()).putInt(uuidCount).putInt(0);
+				header.putLong(keysOffset).putLong(nameRefsOffset).putLong(uuidNamesOffset).putLong(orderOffset).putLong(fileSize);
+				header.flip();
+				while (header.hasRemaining())
+				{
+					channel.write(header, header.position());
+				}
+			}
+			FileUtils.copyPermissions(mappedPath, tempPath);
+			Files.move(tempPath, mappedPath, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			Files.deleteIfExists(tempPath);
+		}
+
+		try (FileChannel channel = FileChannel.open(mappedPath, StandardOpenOption.READ))
+		{
+			return new MappedUuidStore(map(channel, uuidCount, keysOffset, nameRefsOffset, uuidNamesOffset, orderOffset));
+		}
+	}
+
+	@FunctionalInterface
+	private interface IORunnable
+	{
+		void run() throws IOException;
+	}
+
+	private static void writeUnchecked(IORunnable runnable)
+	{
+		try
+		{
+			runnable.run();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static SortedEntries sortedEntriesOf(UuidStore uuids)
+	{
+		int count = uuids.size();
+		long[] keys = new long[count * 2];
+		String[] names = new String[count];
+		int[] index = new int[1];
+		uuids.forEach((msb, lsb, name) -> {
+			keys[index[0] * 2] = msb;
+			keys[index[0] * 2 + 1] = lsb;
+			names[index[0]] = name;
+			index[0]++;
+		});
+		sortEntries(keys, names, 0, count);
+		return consumer -> {
+			for (int i = 0; i < count; i++)
+			{
+				consumer.accept(keys[i * 2], keys[i * 2 + 1], names[i]);
+			}
+		};
+	}
+
+	private static int compareEntry(long[] keys, int i, long msb, long lsb)
+	{
+		int c = Long.compare(keys[i * 2], msb);
+		return c != 0 ? c : Long.compare(keys[i * 2 + 1], lsb);
+	}
+
+	private static void swapEntries(long[] keys, @Nullable String[] names, int i, int j)
+	{
+		long msb = keys[i * 2], lsb = keys[i * 2 + 1];
+		keys[i * 2] = keys[j * 2];
+		keys[i * 2 + 1] = keys[j * 2 + 1];
+		keys[j * 2] = msb;
+		keys[j * 2 + 1] = lsb;
+		String name = names[i];
+		names[i] = names[j];
+		names[j] = name;
+	}
+
+	/**
+	 * Sort the entries within [from, to) by uuid. Entry i holds key (keys[2i], keys[2i+1]) and name names[i]
+	 */
+	static void sortEntries(long[] keys, @Nullable String[] names, int from, int to)
+	{
+		while (to - from > INSERTION_SORT_THRESHOLD)
+		{
+			int mid = (from + to) >>> 1;
+			long pivotMsb = keys[mid * 2], pivotLsb = keys[mid * 2 + 1];
+			int i = from, j = to - 1;
+			while (i <= j)
+			{
+				while (compareEntry(keys, i, pivotMsb, pivotLsb) < 0)
+				{
+					i++;
+				}
+				while (compareEntry(keys, j, pivotMsb, pivotLsb) > 0)
+				{
+					j--;
+				}
+				if (i <= j)
+				{
+					swapEntries(keys, names, i++, j--);
+				}
+			}
+
+			// recurse into the smaller part, so the stack depth stays logarithmic
+			if (j + 1 - from < to - i)
+			{
+				sortEntries(keys, names, from, j + 1);
+				from = i;
+			}
+			else
+			{
+				sortEntries(keys, names, i, to);
+				to = j + 1;
+			}
+		}
+
+		for (int i = from + 1; i < to; i++)
+		{
+			for (int j = i; j > from && compareEntry(keys, j - 1, keys[j * 2], keys[j * 2 + 1]) > 0; j--)
+			{
+				swapEntries(keys, names, j - 1, j);
+			}
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import com.google.common.collect.Maps;
+import me.fallenbreath.velocitywhitelist.utils.UuidBloomFilter;
+import me.fallenbreath.velocitywhitelist.utils.UuidMap;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A {@link UuidStore} backed by the memory-mapped uuids of a {@link MappedListFile},
+ * plus a small on-heap delta of the modifications made since the file was written
+ * <p>
+ * A lookup checks the delta first, then the on-heap Bloom filter of the mapped uuids,
+ * and only binary-searches the mapping if the filter cannot rule the uuid out.
+ * The delta is merged into a new mapped file when the list gets saved
+ * <p>
+ * Iterates the mapped uuids in the order of the yaml file first, then the uuids added after the file was written
+ */
+public final class MappedUuidStore implements UuidStore
+{
+	private final MappedListFile file;
+	private final UuidBloomFilter filter;
+	// uuids added after the file was written, and mapped uuids whose name is changed
+	private final UuidMap overrides;
+	// mapped uuids that are removed
+	private final UuidMap removed;
+	private int size;
+
+	MappedUuidStore(MappedListFile file)
+	{
+		this.file = file;
+		this.filter = new UuidBloomFilter(file.getUuidCount());
+		for (int i = 0; i < file.getUuidCount(); i++)
+		{
+			this.filter.add(file.getMsb(i), file.getLsb(i));
+		}
+		this.overrides = new UuidMap();
+		this.removed = new UuidMap();
+		this.size = file.getUuidCount();
+	}
+
+	private MappedUuidStore(MappedUuidStore other)
+	{
+		this.file = other.file;
+		this.filter = other.filter;
+		this.overrides = other.overrides.copy();
+		this.removed = other.removed.copy();
+		this.size = other.size;
+	}
+
+	/**
+	 * @return the amount of entries in the on-heap delta
+	 */
+	public int getDeltaSize()
+	{
+		return this.overrides.size() + this.removed.size();
+	}
+
+	private int indexInFile(long msb, long lsb)
+	{
+		return this.filter.mightContain(msb, lsb) ? this.file.indexOf(msb, lsb) : -1;
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	@Override
+	public boolean contains(long msb, long lsb)
+	{
+		if (this.overrides.contains(msb, lsb))
+		{
+			return true;
+		}
+		if (this.removed.contains(msb, lsb))
+		{
+			return false;
+		}
+		return this.indexInFile(msb, lsb) >= 0;
+	}
+
+	@Override
+	public @Nullable String getName(UUID uuid)
+	{
+		long msb = uuid.getMostSignificantBits();
+		long lsb = uuid.getLeastSignificantBits();
+		if (this.overrides.contains(msb, lsb))
+		{
+			return this.overrides.getName(uuid);
+		}
+		if (this.removed.contains(msb, lsb))
+		{
+			return null;
+		}
+		int index = this.indexInFile(msb, lsb);
+		return index >= 0 ? this.file.getName(index) : null;
+	}
+
+	@Override
+	public boolean put(long msb, long lsb, @Nullable String name)
+	{
+		boolean existed = this.contains(msb, lsb);
+		this.removed.remove(msb, lsb);
+		this.overrides.put(msb, lsb, name);
+		if (!existed)
+		{
+			this.size++;
+		}
+		return !existed;
+	}
+
+	@Override
+	public boolean remove(long msb, long lsb)
+	{
+		if (!this.contains(msb, lsb))
+		{
+			return false;
+		}
+		this.overrides.remove(msb, lsb);
+		if (this.indexInFile(msb, lsb) >= 0)
+		{
+			this.removed.put(msb, lsb, null);
+		}
+		this.size--;
+		return true;
+	}
+
+	@Override
+	public MappedUuidStore copy()
+	{
+		return new MappedUuidStore(this);
+	}
+
+	@Override
+	public void forEach(EntryConsumer consumer)
+	{
+		for (int i = 0; i < this.file.getUuidCount(); i++)
+		{
+			this.acceptFileEntry(this.file.getSortedIndex(i), consumer);
+		}
+		this.overrides.forEach((msb, lsb, name) -> {
+			if (this.indexInFile(msb, lsb) < 0)
+			{
+				consumer.accept(msb, lsb, name);
+			}
+		});
+	}
+
+	private void acceptFileEntry(int index, EntryConsumer consumer)
+	{
+		long msb = this.file.getMsb(index);
+		long lsb = this.file.getLsb(index);
+		if (this.removed.contains(msb, lsb))
+		{
+			return;
+		}
+		String name = this.overrides.contains(msb, lsb) ? this.overrides.getName(new UUID(msb, lsb)) : this.file.getName(index);
+		consumer.accept(msb, lsb, name);
+	}
+
+	private boolean isRemovedFromFile(int index)
+	{
+		return this.removed.contains(this.file.getMsb(index), this.file.getLsb(index));
+	}
+
+	private Map.Entry<UUID, @Nullable String> fileEntry(int index)
+	{
+		UUID uuid = new UUID(this.file.getMsb(index), this.file.getLsb(index));
+		String name = this.overrides.contains(uuid) ? this.overrides.getName(uuid) : this.file.getName(index);
+		return Maps.immutableEntry(uuid, name);
+	}
+
+	private Stream<Map.Entry<UUID, @Nullable String>> addedEntries()
+	{
+		return this.overrides.stream().filter(entry -> this.indexInFile(entry.getKey().getMostSignificantBits(), entry.getKey().getLeastSignificantBits()) < 0);
+	}
+
+	@Override
+	public Stream<Map.Entry<UUID, @Nullable String>> stream()
+	{
+		return Stream.concat(
+				IntStream.range(0, this.file.getUuidCount()).map(this.file::getSortedIndex).filter(i -> !this.isRemovedFromFile(i)).mapToObj(this::fileEntry),
+				this.addedEntries()
+		);
+	}
+
+	/**
+	 * Binary-searches the range in the mapping, so only the matched part of the file is read.
+	 * The matched mapped uuids come first in uuid order, then the matched uuids added after the file was written
+	 */
+	@Override
+	public Stream<Map.Entry<UUID, @Nullable String>> streamUuidRange(UUID from, UUID to)
+	{
+		long fromMsb = from.getMostSignificantBits(), fromLsb = from.getLeastSignificantBits();
+		long toMsb = to.getMostSignificantBits(), toLsb = to.getLeastSignificantBits();
+		IntStream indexes;
+		if ((fromMsb < 0) == (toMsb < 0))
+		{
+			indexes = this.fileIndexes(fromMsb, fromLsb, toMsb, toLsb);
+		}
+		else
+		{
+			// the file is sorted in signed order, where the upper half of the uuid string order comes first
+			indexes = IntStream.concat(this.fileIndexes(fromMsb, fromLsb, Long.MAX_VALUE, -1L), this.fileIndexes(Long.MIN_VALUE, 0L, toMsb, toLsb));
+		}
+		return Stream.concat(
+				indexes.filter(i -> !this.isRemovedFromFile(i)).mapToObj(this::fileEntry),
+				this.addedEntries().filter(entry -> UUID_STRING_ORDER.compare(entry.getKey(), from) >= 0 && UUID_STRING_ORDER.compare(entry.getKey(), to) <= 0)
+		);
+	}
+
+	@Override
+	public boolean isUuidRangeIndexed()
+	{
+		return true;
+	}
+
+	/**
+	 * Indexes of the mapped uuids within [from, to] in signed order
+	 */
+	private IntStream fileIndexes(long fromMsb, long fromLsb, long toMsb, long toLsb)
+	{
+		return IntStream.range(this.file.countBelow(fromMsb, fromLsb, false), this.file.countBelow(toMsb, toLsb, true));
+	}
+
+	/**
+	 * Iterate all entries sorted by uuid, for writing a new mapped file
+	 */
+	void forEachSorted(EntryConsumer consumer)
+	{
+		UuidMap added = new UuidMap();
+		this.overrides.forEach((msb, lsb, name) -> {
+			if (this.indexInFile(msb, lsb) < 0)
+			{
+				added.put(msb, lsb, name);
+			}
+		});
+		int addedCount = added.size();
+		long[] addedKeys = new long[addedCount * 2];
+		String[] addedNames = new String[addedCount];
+		int[] index = new int[1];
+		added.forEach((msb, lsb, name) -> {
+			addedKeys[index[0] * 2] = msb;
+			addedKeys[index[0] * 2 + 1] = lsb;
+			addedNames[index[0]] = name;
+			index[0]++;
+		});
+		MappedListFile.sortEntries(addedKeys, addedNames, 0, addedCount);
+
+		int fileCount = this.file.getUuidCount();
+		int i = 0, j = 0;
+		while (i < fileCount || j < addedCount)
+		{
+			boolean fromFile = j >= addedCount;
+			if (i < fileCount && j < addedCount)
+			{
+				int c = Long.compare(this.file.getMsb(i), addedKeys[j * 2]);
+				fromFile = (c != 0 ? c : Long.compare(this.file.getLsb(i), addedKeys[j * 2 + 1])) < 0;
+			}
+			if (fromFile)
+			{
+				this.acceptFileEntry(i++, consumer);
+			}
+			else
+			{
+				consumer.accept(addedKeys[j * 2], addedKeys[j * 2 + 1], addedNames[j]);
+				j++;
+			}
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import com.google.common.collect.Lists;
+import me.fallenbreath.velocitywhitelist.utils.UuidMap;
+import me.fallenbreath.velocitywhitelist.utils.UuidUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a player list file with the SnakeYAML event API, so entries go straight into the target collections
+ * without building the whole yaml node tree first
+ */
+public class PlayerListYamlReader
+{
+	private final Logger logger;
+	private final Set<String> names;
+	private final UuidMap uuids;
+	private final Iterator<Event> events;
+	private final long[] uuidBits = new long[2];
+
+	private PlayerListYamlReader(Iterator<Event> events, Logger logger, Set<String> names, UuidMap uuids)
+	{
+		this.events = events;
+		this.logger = logger;
+		this.names = names;
+		this.uuids = uuids;
+	}
+
+	public static void read(Path filePath, Logger logger, Set<String> names, UuidMap uuids) throws IOException
+	{
+		LoaderOptions loaderOptions = new LoaderOptions();
+		// the default limit is a few MB, which a large list can easily exceed
+		loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+
+		try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8))
+		{
+			new PlayerListYamlReader(new Yaml(loaderOptions).parse(reader).iterator(), logger, names, uuids).readDocument();
+		}
+		catch (YAMLException e)
+		{
+			throw new IOException("Failed to parse yaml file " + filePath, e);
+		}
+	}
+
+	private Event next()
+	{
+		if (!this.events.hasNext())
+		{
+			throw new YAMLException("Unexpected end of yaml stream");
+		}
+		return this.events.next();
+	}
+
+	private void readDocument()
+	{
+		// stream start, document start
+		this.next();
+		Event event = this.next();
+		if (event instanceof StreamEndEvent)
+		{
+			// empty file
+			return;
+		}
+		event = this.next();
+		if (event instanceof MappingStartEvent)
+		{
+			while (!((event = this.next()) instanceof MappingEndEvent))
+			{
+				String key = event instanceof ScalarEvent scalar ? scalar.getValue() : null;
+				this.skipValue(event);
+
+				Event valueStart = this.next();
+				if ("names".equals(key) && valueStart instanceof SequenceStartEvent)
+				{
+					this.readNames();
+				}
+				else if ("uuids".equals(key) && valueStart instanceof SequenceStartEvent)
+				{
+					this.readUuids();
+				}
+				else
+				{
+					this.skipValue(valueStart);
+				}
+			}
+		}
+		else if (!isNull(event))
+		{
+			throw new YAMLException("The root of a player list file should be a mapping");
+		}
+
+		if (!(this.next() instanceof DocumentEndEvent))
+		{
+			throw new YAMLException("Unexpected content after the first yaml document");
+		}
+	}
+
+	/**
+	 * Skip the remaining events of the node started with the given event
+	 */
+	private void skipValue(Event start)
+	{
+		if (start instanceof CollectionStartEvent)
+		{
+			int depth = 1;
+			while (depth > 0)
+			{
+				Event event = this.next();
+				if (event instanceof CollectionStartEvent)
+				{
+					depth++;
+				}
+				else if (event instanceof CollectionEndEvent)
+				{
+					depth--;
+				}
+			}
+		}
+	}
+
+	private void readNames()
+	{
+		Event event;
+		while (!((event = this.next()) instanceof SequenceEndEvent))
+		{
+			if (event instanceof ScalarEvent scalar && !isNull(scalar))
+			{
+				if (!this.names.add(scalar.getValue()))
+				{
+					this.logger.warn("Skipping duplicated name \"{}\"", scalar.getValue());
+				}
+			}
+			else
+			{
+				this.logger.warn("Skipping invalid name list item {}", describe(event));
+				this.skipValue(event);
+			}
+		}
+	}
+
+	private void readUuids()
+	{
+		Event event;
+		while (!((event = this.next()) instanceof SequenceEndEvent))
+		{
+			if (event instanceof ScalarEvent scalar && !isNull(scalar))
+			{
+				this.putUuid(scalar.getValue(), null);
+			}
+			else if (event instanceof MappingStartEvent)
+			{
+				this.readUuidMapping();
+			}
+			else
+			{
+				this.logger.warn("Skipping invalid UUID list item {}", describe(event));
+				this.skipValue(event);
+			}
+		}
+	}
+
+	/**
+	 * Reads a "uuid: name" mapping item. The mapping start event is already consumed
+	 */
+	private void readUuidMapping()
+	{
+		// only scalar keys and values are kept, so a valid item can be identified after the whole mapping is read
+		List<String> scalars = Lists.newArrayListWithCapacity(2);
+		boolean allScalars = true;
+		int size = 0;
+		Event event;
+		while (!((event = this.next()) instanceof MappingEndEvent))
+		{
+			if (event instanceof ScalarEvent scalar)
+			{
+				scalars.add(isNull(scalar) ? null : scalar.getValue());
+			}
+			else
+			{
+				allScalars = false;
+				this.skipValue(event);
+			}
+			size++;
+		}
+		size /= 2;
+
+		if (size != 1)
+		{
+			this.logger.warn("Skipping invalid map item with size {}", size);
+		}
+		else if (allScalars && scalars.get(0) != null)
+		{
+			this.putUuid(scalars.get(0), scalars.get(1));
+		}
+	}
+
+	private void putUuid(String s, @Nullable String name)
+	{
+		if (UuidUtils.tryParseUuid(s, this.uuidBits))
+		{
+			this.uuids.put(this.uuidBits[0], this.uuidBits[1], name);
+		}
+		else if (name != null)
+		{
+			this.logger.warn("Skipping invalid UUID \"{}\" ({})", s, name);
+		}
+		else
+		{
+			this.logger.warn("Skipping invalid UUID \"{}\"", s);
+		}
+	}
+
+	/**
+	 * Plain scalars that SnakeYAML resolves to null when building nodes
+	 */
+	private static boolean isNull(Event event)
+	{
+		if (event instanceof ScalarEvent scalar && scalar.isPlain() && scalar.getTag() == null)
+		{
+			return switch (scalar.getValue())
+			{
+				case "", "~", "null", "Null", "NULL" -> true;
+				default -> false;
+			};
+		}
+		return false;
+	}
+
+	private static String describe(Event event)
+	{
+		if (event instanceof ScalarEvent scalar)
+		{
+			return isNull(scalar) ? "null" : scalar.getValue();
+		}
+		if (event instanceof AliasEvent alias)
+		{
+			return "*" + alias.getAnchor();
+		}
+		return event instanceof MappingStartEvent ? "{...}" : "[...]";
+	}
+}
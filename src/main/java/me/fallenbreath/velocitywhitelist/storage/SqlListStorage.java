@@ -0,0 +1,383 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import me.fallenbreath.velocitywhitelist.utils.NameSet;
+import me.fallenbreath.velocitywhitelist.utils.UuidMap;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps a player list in the rows of a {@link ListDatabase}. Every modification is written to its row right away,
+ * so there's no full list rewrite, and the uuid and name lookups are served by the table indexes
+ * <p>
+ * The first load imports the list from the given source storage, e.g. the existing yaml list file.
+ * The source file is not read again after that, so a warning is logged on load if it's modified after the import
+ */
+public class SqlListStorage implements ListStorage
+{
+	private static final int BATCH_SIZE = 1000;
+
+	private final Logger logger;
+	private final String listName;
+	private final ListDatabase database;
+	// the list_key column value
+	private final String key;
+	private final ListStorage importSource;
+	private final Path importSourceFile;
+	// set when a modification fails to be written, so the whole list gets rewritten in the next save
+	private volatile boolean broken = false;
+	// amount of recorded modifications, for telling if a save includes all of them
+	private volatile long recordCount = 0;
+
+	public SqlListStorage(Logger logger, String listName, ListDatabase database, String key, ListStorage importSource, Path importSourceFile)
+	{
+		this.logger = logger;
+		this.listName = listName;
+		this.database = database;
+		this.key = key;
+		this.importSource = importSource;
+		this.importSourceFile = importSourceFile;
+	}
+
+	@Override
+	public Contents load(Logger logger, boolean caseInsensitiveNames) throws IOException
+	{
+		long start = System.nanoTime();
+		try
+		{
+			Long importedAt = this.database.execute(this::getImportTime);
+			if (importedAt == null)
+			{
+				Contents imported = this.importSource.load(logger, caseInsensitiveNames);
+				// taken after the load, which might have rewritten the source file, e.g. merged its journal
+				long importTimeMs = System.currentTimeMillis();
+				this.database.executeInTransaction(connection -> {
+					this.replaceAll(connection, imported.names(), imported.uuids());
+					this.setImportTime(connection, importTimeMs);
+					return null;
+				});
+				logger.info("Imported {} names and {} uuids of the {} into the database", imported.names().size(), imported.uuids().size(), this.listName);
+				return new Contents(imported.names(), imported.uuids(), 0, System.nanoTime() - start, "imported " + imported.source());
+			}
+			this.warnIfSourceModified(importedAt);
+
+			NameSet names = new NameSet(caseInsensitiveNames);
+			UuidMap uuids = new UuidMap();
+			this.database.execute(connection -> {
+				try (PreparedStatement statement = connection.prepareStatement("SELECT name FROM player_names WHERE list_key = ?"))
+				{
+					statement.setString(1, this.key);
+					try (ResultSet rs = statement.executeQuery())
+					{
+						while (rs.next())
+						{
+							names.add(rs.getString(1));
+						}
+					}
+				}
+				try (PreparedStatement statement = connection.prepareStatement("SELECT uuid, name FROM player_uuids WHERE list_key = ?"))
+				{
+					statement.setString(1, this.key);
+					try (ResultSet rs = statement.executeQuery())
+					{
+						while (rs.next())
+						{
+							uuids.put(rs.getObject(1, UUID.class), rs.getString(2));
+						}
+					}
+				}
+				return null;
+			});
+			this.broken = false;
+			return new Contents(names, uuids, System.nanoTime() - start, 0, "database");
+		}
+		catch (SQLException e)
+		{
+			throw new IOException("Failed to load the " + this.listName + " from the database", e);
+		}
+	}
+
+	/**
+	 * @return null if the list is not imported yet, or 0 if the import time is unknown
+	 */
+	private @Nullable Long getImportTime(Connection connection) throws SQLException
+	{
+		try (PreparedStatement statement = connection.prepareStatement("SELECT imported_at FROM player_lists WHERE list_key = ?"))
+		{
+			statement.setString(1, this.key);
+			try (ResultSet rs = statement.executeQuery())
+			{
+				if (!rs.next())
+				{
+					return null;
+				}
+				return rs.getLong(1);
+			}
+		}
+	}
+
+	private void setImportTime(Connection connection, long importedAt) throws SQLException
+	{
+		try (PreparedStatement statement = connection.prepareStatement("UPDATE player_lists SET imported_at = ? WHERE list_key = ?"))
+		{
+			statement.setLong(1, importedAt);
+			statement.setString(2, this.key);
+			statement.executeUpdate();
+		}
+	}
+
+	/**
+	 * The plugin never writes the import source file after the import, so a newer file means it's edited by hand
+	 */
+	private void warnIfSourceModified(long importedAt)
+	{
+		if (importedAt <= 0 || !Files.exists(this.importSourceFile))
+		{
+			return;
+		}
+		try
+		{
+			if (Files.getLastModifiedTime(this.importSourceFile).toMillis() > importedAt)
+			{
+				this.logger.warn(
+						"{} is modified after the {} got imported into the database at {}. The modifications are NOT applied, since the list is kept in the database with list_storage: h2",
+						this.importSourceFile, this.listName, Instant.ofEpochMilli(importedAt)
+				);
+			}
+		}
+		catch (IOException e)
+		{
+			this.logger.warn("Failed to check the modification time of {}", this.importSourceFile, e);
+		}
+	}
+
+	/**
+	 * Replace all rows of this list with the given content. Invoked in a transaction
+	 */
+	private Void replaceAll(Connection connection, NameSet names, UuidStore uuids) throws SQLException
+	{
+		for (String table : new String[]{"player_names", "player_uuids"})
+		{
+			try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table + " WHERE list_key = ?"))
+			{
+				statement.setString(1, this.key);
+				statement.executeUpdate();
+			}
+		}
+
+		try (PreparedStatement statement = connection.prepareStatement("INSERT INTO player_names (list_key, name) VALUES (?, ?)"))
+		{
+			int pending = 0;
+			for (String name : names)
+			{
+				statement.setString(1, this.key);
+				statement.setString(2, name);
+				statement.addBatch();
+				if (++pending == BATCH_SIZE)
+				{
+					statement.executeBatch();
+					pending = 0;
+				}
+			}
+			if (pending > 0)
+			{
+				statement.executeBatch();
+			}
+		}
+
+		try (PreparedStatement statement = connection.prepareStatement("INSERT INTO player_uuids (list_key, uuid, name) VALUES (?, ?, ?)"))
+		{
+			int[] pending = {0};
+			SQLException[] error = {null};
+			uuids.forEach((msb, lsb, name) -> {
+				if (error[0] != null)
+				{
+					return;
+				}
+				try
+				{
+					statement.setString(1, this.key);
+					statement.setObject(2, new UUID(msb, lsb));
+					setNullableString(statement, 3, name);
+					statement.addBatch();
+					if (++pending[0] == BATCH_SIZE)
+					{
+						statement.executeBatch();
+						pending[0] = 0;
+					}
+				}
+				catch (SQLException e)
+				{
+					error[0] = e;
+				}
+			});
+			if (error[0] != null)
+			{
+				throw error[0];
+			}
+			if (pending[0] > 0)
+			{
+				statement.executeBatch();
+			}
+		}
+
+		try (PreparedStatement statement = connection.prepareStatement("MERGE INTO player_lists (list_key) KEY (list_key) VALUES (?)"))
+		{
+			statement.setString(1, this.key);
+			statement.executeUpdate();
+		}
+		return null;
+	}
+
+	private static void setNullableString(PreparedStatement statement, int index, @Nullable String value) throws SQLException
+	{
+		if (value != null)
+		{
+			statement.setString(index, value);
+		}
+		else
+		{
+			statement.setNull(index, Types.VARCHAR);
+		}
+	}
+
+	private void write(Connection connection, ListJournal.Entry entry) throws SQLException
+	{
+		if (entry instanceof ListJournal.AddName e)
+		{
+			try (PreparedStatement statement = connection.prepareStatement("MERGE INTO player_names (list_key, name) KEY (list_key, name) VALUES (?, ?)"))
+			{
+				statement.setString(1, this.key);
+				statement.setString(2, e.name());
+				statement.executeUpdate();
+			}
+		}
+		else if (entry instanceof ListJournal.RemoveName e)
+		{
+			try (PreparedStatement statement = connection.prepareStatement("DELETE FROM player_names WHERE list_key = ? AND name = ?"))
+			{
+				statement.setString(1, this.key);
+				statement.setString(2, e.name());
+				statement.executeUpdate();
+			}
+		}
+		else if (entry instanceof ListJournal.PutUuid e)
+		{
+			try (PreparedStatement statement = connection.prepareStatement("MERGE INTO player_uuids (list_key, uuid, name) KEY (list_key, uuid) VALUES (?, ?, ?)"))
+			{
+				statement.setString(1, this.key);
+				statement.setObject(2, e.uuid());
+				setNullableString(statement, 3, e.name());
+				statement.executeUpdate();
+			}
+		}
+		else if (entry instanceof ListJournal.RemoveUuid e)
+		{
+			try (PreparedStatement statement = connection.prepareStatement("DELETE FROM player_uuids WHERE list_key = ? AND uuid = ?"))
+			{
+				statement.setString(1, this.key);
+				statement.setObject(2, e.uuid());
+				statement.executeUpdate();
+			}
+		}
+	}
+
+	@Override
+	public void record(ListJournal.Entry entry)
+	{
+		this.recordAll(List.of(entry));
+	}
+
+	/**
+	 * All modifications are written in a single transaction
+	 */
+	@Override
+	public void recordAll(List<ListJournal.Entry> entries)
+	{
+		this.recordCount++;
+		if (this.broken)
+		{
+			// waiting for the full rewrite
+			return;
+		}
+		try
+		{
+			this.database.executeInTransaction(connection -> {
+				for (ListJournal.Entry entry : entries)
+				{
+					this.write(connection, entry);
+				}
+				return null;
+			});
+		}
+		catch (SQLException e)
+		{
+			this.logger.error("Failed to write {} modifications of the {} into the database, falling back to full list rewrite", entries.size(), this.listName, e);
+			this.broken = true;
+		}
+	}
+
+	@Override
+	public boolean isSaveNeeded()
+	{
+		return this.broken;
+	}
+
+	/**
+	 * @return the amount of recorded modifications
+	 */
+	@Override
+	public long getSavePoint()
+	{
+		return this.recordCount;
+	}
+
+	@Override
+	public @Nullable UuidStore save(NameSet names, UuidStore uuids, boolean includesRecorded, long savePoint) throws IOException
+	{
+		try
+		{
+			this.database.executeInTransaction(connection -> this.replaceAll(connection, names, uuids));
+			// otherwise there are modifications skipped after the save point, which need another save
+			if (includesRecorded && this.recordCount == savePoint)
+			{
+				this.broken = false;
+			}
+			return null;
+		}
+		catch (SQLException e)
+		{
+			throw new IOException("Failed to save the " + this.listName + " into the database", e);
+		}
+	}
+
+	/**
+	 * The database is owned by the plugin
+	 */
+	@Override
+	public boolean isModifiedExternally()
+	{
+		return false;
+	}
+
+	/**
+	 * Closes the import source only. The database is shared between the lists, and gets closed by its owner
+	 */
+	@Override
+	public void close()
+	{
+		this.importSource.close();
+	}
+}
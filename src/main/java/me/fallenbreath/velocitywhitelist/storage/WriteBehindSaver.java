@@ -0,0 +1,113 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fallenbreath.velocitywhitelist.config.PlayerList;
+import org.slf4j.Logger;
+
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Saves modified player lists on a single background writer thread
+ * <p>
+ * Modifications within the save delay window are coalesced, so each list is written at most once per window
+ */
+public class WriteBehindSaver
+{
+	private final Logger logger;
+	private final LongSupplier saveDelayMsGetter;
+	private final Consumer<PlayerList> saver;
+	private final ScheduledExecutorService executor;
+	private final Set<PlayerList> dirtyLists = Sets.newConcurrentHashSet();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+	public WriteBehindSaver(Logger logger, LongSupplier saveDelayMsGetter, Consumer<PlayerList> saver)
+	{
+		this.logger = logger;
+		this.saveDelayMsGetter = saveDelayMsGetter;
+		this.saver = saver;
+		this.executor = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Saver").setDaemon(true).build()
+		);
+	}
+
+	public void markDirty(PlayerList list)
+	{
+		this.dirtyLists.add(list);
+		if (this.flushScheduled.compareAndSet(false, true))
+		{
+			try
+			{
+				this.executor.schedule(this::flushDirtyLists, this.saveDelayMsGetter.getAsLong(), TimeUnit.MILLISECONDS);
+			}
+			catch (RejectedExecutionException e)
+			{
+				// already shut down, save it right now
+				this.flushDirtyLists();
+			}
+		}
+	}
+
+	private void flushDirtyLists()
+	{
+		this.flushScheduled.set(false);
+		for (PlayerList list : this.dirtyLists)
+		{
+			if (this.dirtyLists.remove(list))
+			{
+				this.saver.accept(list);
+			}
+		}
+	}
+
+	/**
+	 * Write all pending modifications to the disk, and wait for it to finish
+	 */
+	public void flush()
+	{
+		try
+		{
+			this.executor.submit(this::flushDirtyLists).get();
+		}
+		catch (RejectedExecutionException e)
+		{
+			this.flushDirtyLists();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			this.logger.warn("Interrupted while waiting for the lists to be saved");
+		}
+		catch (ExecutionException e)
+		{
+			this.logger.error("Failed to flush pending list modifications", e.getCause());
+		}
+	}
+
+	public void shutdown()
+	{
+		this.flush();
+		this.executor.shutdown();
+		try
+		{
+			if (!this.executor.awaitTermination(10, TimeUnit.SECONDS))
+			{
+				this.logger.warn("Timed out waiting for the saver thread to stop");
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		// in case anything was marked dirty during the shutdown
+		this.flushDirtyLists();
+	}
+}
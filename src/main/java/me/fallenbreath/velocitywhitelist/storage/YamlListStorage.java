@@ -0,0 +1,231 @@
+package me.fallenbreath.velocitywhitelist.storage;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import me.fallenbreath.velocitywhitelist.metrics.PluginMetrics;
+import me.fallenbreath.velocitywhitelist.utils.FileUtils;
+import me.fallenbreath.velocitywhitelist.utils.NameSet;
+import me.fallenbreath.velocitywhitelist.utils.UuidMap;
+import me.fallenbreath.velocitywhitelist.utils.UuidStore;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * The yaml list file, plus its binary snapshot or mapped list file for fast loading,
+ * and the journal that persists the modifications made since the list file was last written
+ */
+public class YamlListStorage implements ListStorage
+{
+	private final String listName;
+	private final Path filePath;
+	private final Path snapshotFilePath;
+	private final Path mappedFilePath;
+	private final BooleanSupplier mappedUuidStorageGetter;
+	private final ListJournal journal;
+	private final LongSupplier journalCompactionThresholdGetter;
+	// mtime of the list file when it was last loaded or written by us, for telling external modifications apart
+	private volatile @Nullable FileTime knownFileMtime = null;
+
+	/**
+	 * @param mappedUuidStorageGetter if the uuids are kept in a memory-mapped file instead of the heap. Takes effect when the list is loaded
+	 * @param journalCompactionThresholdGetter journal size in bytes from which the list file gets rewritten
+	 */
+	public YamlListStorage(String listName, Path filePath, BooleanSupplier mappedUuidStorageGetter, ListJournal journal, LongSupplier journalCompactionThresholdGetter)
+	{
+		this.listName = listName;
+		this.filePath = filePath;
+		this.snapshotFilePath = FileUtils.replaceExtension(filePath, ".bin");
+		this.mappedFilePath = FileUtils.replaceExtension(filePath, ".mapped");
+		this.mappedUuidStorageGetter = mappedUuidStorageGetter;
+		this.journal = journal;
+		this.journalCompactionThresholdGetter = journalCompactionThresholdGetter;
+	}
+
+	public Path getFilePath()
+	{
+		return this.filePath;
+	}
+
+	public ListJournal getJournal()
+	{
+		return this.journal;
+	}
+
+	@Override
+	public Contents load(Logger logger, boolean caseInsensitiveNames) throws IOException
+	{
+		if (!Files.isRegularFile(this.filePath))
+		{
+			logger.info("Creating default empty {} file", this.listName);
+			this.writeYaml(new NameSet(caseInsensitiveNames), new UuidMap());
+		}
+
+		long start = System.nanoTime();
+		this.knownFileMtime = Files.getLastModifiedTime(this.filePath);
+		boolean mapped = this.mappedUuidStorageGetter.getAsBoolean();
+		NameSet names = null;
+		UuidStore uuids = null;
+		String source = null;
+		if (mapped)
+		{
+			MappedListFile.Contents contents = MappedListFile.read(this.mappedFilePath, this.filePath, caseInsensitiveNames);
+			if (contents != null)
+			{
+				names = contents.names();
+				uuids = contents.uuids();
+				source = "mapped list file";
+				logger.debug("{} loaded from mapped list file {}", this.listName, this.mappedFilePath);
+			}
+		}
+		else
+		{
+			ListSnapshotFile.Contents contents = ListSnapshotFile.read(this.snapshotFilePath, this.filePath, caseInsensitiveNames);
+			if (contents != null)
+			{
+				names = contents.names();
+				uuids = contents.uuids();
+				source = "binary snapshot";
+				logger.debug("{} loaded from binary snapshot {}", this.listName, this.snapshotFilePath);
+			}
+		}
+		long readDone = System.nanoTime();
+		if (names == null)
+		{
+			names = new NameSet(caseInsensitiveNames);
+			UuidMap parsedUuids = new UuidMap();
+			PlayerListYamlReader.read(this.filePath, logger, names, parsedUuids);
+			uuids = parsedUuids;
+			source = "yaml";
+			if (mapped)
+			{
+				try
+				{
+					uuids = MappedListFile.write(this.mappedFilePath, this.filePath, names, parsedUuids);
+				}
+				catch (IOException e)
+				{
+					logger.warn("Failed to write the mapped list file {}, keeping the uuids of {} in memory", this.mappedFilePath, this.listName, e);
+				}
+			}
+		}
+		long parseDone = System.nanoTime();
+
+		NameSet finalNames = names;
+		UuidStore finalUuids = uuids;
+		this.journal.replay(entry -> {
+			if (entry instanceof ListJournal.AddName e)
+			{
+				finalNames.add(e.name());
+			}
+			else if (entry instanceof ListJournal.RemoveName e)
+			{
+				finalNames.remove(e.name());
+			}
+			else if (entry instanceof ListJournal.PutUuid e)
+			{
+				finalUuids.put(e.uuid(), e.name());
+			}
+			else if (entry instanceof ListJournal.RemoveUuid e)
+			{
+				finalUuids.remove(e.uuid());
+			}
+		});
+
+		return new Contents(names, uuids, readDone - start, parseDone - readDone, source);
+	}
+
+	@Override
+	public void record(ListJournal.Entry entry)
+	{
+		this.journal.append(entry);
+	}
+
+	/**
+	 * With the journal enabled, the modifications are already persisted in the journal,
+	 * so the list file is only rewritten when the journal needs a compaction
+	 */
+	@Override
+	public boolean isSaveNeeded()
+	{
+		return !this.journal.isEnabled() || this.journal.isBroken() || this.journal.size() >= this.journalCompactionThresholdGetter.getAsLong();
+	}
+
+	/**
+	 * @return the journal size, the journal content up to which gets included in the saved list file
+	 */
+	@Override
+	public long getSavePoint()
+	{
+		return this.journal.size();
+	}
+
+	private byte[] writeYaml(NameSet names, UuidStore uuids) throws IOException
+	{
+		Map<String, Object> options = Maps.newLinkedHashMap();
+		options.put("names", Lists.newArrayList(names));
+		List<Object> uuidList = Lists.newArrayListWithCapacity(uuids.size());
+		uuids.forEach((msb, lsb, name) -> {
+			String uuid = new UUID(msb, lsb).toString();
+			uuidList.add(name != null ? Map.of(uuid, name) : uuid);
+		});
+		options.put("uuids", uuidList);
+
+		byte[] yamlContent = FileUtils.toYaml(options).getBytes(StandardCharsets.UTF_8);
+		FileUtils.safeWrite(this.filePath, yamlContent);
+		this.knownFileMtime = Files.getLastModifiedTime(this.filePath);
+		return yamlContent;
+	}
+
+	/**
+	 * Write the whole list into the list file and its binary snapshot, and compact the journal
+	 * <p>
+	 * With memory-mapped uuids, the binary snapshot is the mapped list file, and the pending uuid modifications get merged into it
+	 */
+	@Override
+	public @Nullable UuidStore save(NameSet names, UuidStore uuids, boolean includesRecorded, long savePoint) throws IOException
+	{
+		byte[] yamlContent = this.writeYaml(names, uuids);
+		if (includesRecorded)  // otherwise the journal is not included in the list file yet
+		{
+			this.journal.discardPrefix(savePoint);
+		}
+		PluginMetrics.LIST_SAVE_BYTES.labels(PluginMetrics.listLabel(this.listName)).set(yamlContent.length);
+
+		if (uuids instanceof MappedUuidStore)
+		{
+			return MappedListFile.write(this.mappedFilePath, this.filePath, names, uuids);
+		}
+		ListSnapshotFile.write(this.snapshotFilePath, this.filePath, yamlContent, names, uuids);
+		return null;
+	}
+
+	@Override
+	public boolean isModifiedExternally()
+	{
+		try
+		{
+			return !Files.getLastModifiedTime(this.filePath).equals(this.knownFileMtime);
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		this.journal.close();
+	}
+}
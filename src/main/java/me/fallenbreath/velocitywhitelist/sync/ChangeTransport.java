@@ -0,0 +1,34 @@
+package me.fallenbreath.velocitywhitelist.sync;
+
+import java.io.IOException;
+
+/**
+ * Delivers {@link SyncMessage}s between the proxies of a network
+ * <p>
+ * Every message is delivered to all other proxies, in the order it's published by its origin.
+ * Messages might get lost, which is detected and recovered by the receiver with the sequence numbers
+ */
+public interface ChangeTransport
+{
+	/**
+	 * Invoked on a single transport thread
+	 */
+	interface Receiver
+	{
+		void receive(SyncMessage message);
+
+		/**
+		 * The proxy is no longer seen, e.g. it stopped or crashed. Not every transport can tell
+		 */
+		void onPeerGone(String proxyId);
+	}
+
+	/**
+	 * Start delivering the messages published by other proxies to the receiver
+	 */
+	void start(Receiver receiver) throws IOException;
+
+	void publish(SyncMessage message) throws IOException;
+
+	void stop();
+}
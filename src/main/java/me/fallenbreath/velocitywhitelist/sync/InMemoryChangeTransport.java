@@ -0,0 +1,85 @@
+package me.fallenbreath.velocitywhitelist.sync;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Connects the transports joined to the same {@link Hub} within a single jvm, e.g. for testing multiple proxies in one process
+ * <p>
+ * Messages still go through the encoding, so the delivered messages are never the published instances.
+ * The members don't know the proxy ids, so a stopped member is not reported as gone
+ */
+public class InMemoryChangeTransport implements ChangeTransport
+{
+	public static class Hub
+	{
+		private final List<InMemoryChangeTransport> members = new CopyOnWriteArrayList<>();
+	}
+
+	private final Hub hub;
+	private @Nullable ExecutorService executor = null;
+	private @Nullable Receiver receiver = null;
+
+	public InMemoryChangeTransport(Hub hub)
+	{
+		this.hub = hub;
+	}
+
+	@Override
+	public synchronized void start(Receiver receiver)
+	{
+		this.receiver = receiver;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Sync Receiver").setDaemon(true).build());
+		this.hub.members.add(this);
+	}
+
+	@Override
+	public void publish(SyncMessage message) throws IOException
+	{
+		byte[] bytes = SyncMessage.encode(message);
+		for (InMemoryChangeTransport member : this.hub.members)
+		{
+			if (member != this)
+			{
+				member.deliver(bytes);
+			}
+		}
+	}
+
+	private synchronized void deliver(byte[] bytes)
+	{
+		ExecutorService executor = this.executor;
+		Receiver receiver = this.receiver;
+		if (executor != null && receiver != null)
+		{
+			// in the publishing order, and not on the publisher thread
+			executor.execute(() -> {
+				try
+				{
+					receiver.receive(SyncMessage.decode(bytes));
+				}
+				catch (IOException e)
+				{
+					throw new IllegalStateException(e);
+				}
+			});
+		}
+	}
+
+	@Override
+	public synchronized void stop()
+	{
+		this.hub.members.remove(this);
+		if (this.executor != null)
+		{
+			this.executor.shutdown();
+			this.executor = null;
+		}
+	}
+}
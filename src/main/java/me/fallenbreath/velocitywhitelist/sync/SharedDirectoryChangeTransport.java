@@ -0,0 +1,423 @@
+package me.fallenbreath.velocitywhitelist.sync;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Exchanges messages through a directory shared by all proxies, e.g. a network mount
+ * <p>
+ * Each proxy appends its messages to its own segment files in the directory, named "{proxy id}.{generation}.changes",
+ * and polls the files of the other proxies for new messages. A new segment is started once the current one exceeds the segment size
+ * <p>
+ * A running proxy keeps touching its current segment. Every proxy deletes the files that it hasn't seen modified within the peer timeout,
+ * i.e. the finished segments, and the segments of the proxies that crashed. The own segments are deleted when the transport stops.
+ * A proxy is reported gone once none of its files are left
+ * <p>
+ * File modification times are set by the clocks of other machines, so they are only compared with each other, never with the local clock
+ * <p>
+ * Record layout: [int payload length][int payload crc32][payload]
+ */
+public class SharedDirectoryChangeTransport implements ChangeTransport
+{
+	private static final String FILE_EXTENSION = ".changes";
+	private static final int HEADER_SIZE = 8;
+	private static final int MAX_PAYLOAD_SIZE = 1 << 30;
+
+	private record Segment(Path path, String proxyId, long generation)
+	{
+		private static final Comparator<Segment> ORDER = Comparator.comparing(Segment::proxyId).thenComparingLong(Segment::generation);
+
+		/**
+		 * @return null if it's not a segment file name
+		 */
+		private static @Nullable Segment of(Path path)
+		{
+			String fileName = path.getFileName().toString();
+			if (!fileName.endsWith(FILE_EXTENSION))
+			{
+				return null;
+			}
+			String baseName = fileName.substring(0, fileName.length() - FILE_EXTENSION.length());
+			int dot = baseName.lastIndexOf('.');
+			if (dot <= 0)
+			{
+				return null;
+			}
+			try
+			{
+				return new Segment(path, baseName.substring(0, dot), Long.parseLong(baseName.substring(dot + 1)));
+			}
+			catch (NumberFormatException e)
+			{
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @param observedAtMs the local monotonic time at which the modification time or the size was seen changed
+	 */
+	private record FileObservation(FileTime lastModified, long size, long observedAtMs)
+	{
+	}
+
+	private final Logger logger;
+	private final Path directory;
+	private final String proxyId;
+	private final long pollIntervalMs;
+	private final long segmentSizeBytes;
+	private final long peerTimeoutMs;
+	// read positions of the files of the other proxies. The following are accessed by the poll thread only
+	private final Map<Path, Long> readPositions = Maps.newHashMap();
+	private final Map<Path, FileObservation> observations = Maps.newHashMap();
+	private Set<String> knownPeers = Sets.newHashSet();
+	private long lastHeartbeatMs = 0;
+	// the following are guarded by this
+	private boolean started = false;
+	private long generation = 0;
+	private @Nullable Path ownFile = null;
+	private @Nullable FileChannel output = null;
+	private long outputSize = 0;
+	private @Nullable ScheduledExecutorService poller = null;
+
+	public SharedDirectoryChangeTransport(Logger logger, Path directory, String proxyId, long pollIntervalMs, long segmentSizeBytes, long peerTimeoutMs)
+	{
+		this.logger = logger;
+		this.directory = directory;
+		this.proxyId = proxyId;
+		this.pollIntervalMs = Math.max(1, pollIntervalMs);
+		this.segmentSizeBytes = Math.max(1, segmentSizeBytes);
+		this.peerTimeoutMs = Math.max(1, peerTimeoutMs);
+	}
+
+	@Override
+	public synchronized void start(Receiver receiver) throws IOException
+	{
+		Files.createDirectories(this.directory);
+		this.openNextSegment();
+		this.started = true;
+
+		// the history of the proxies that are already running is skipped. Their next change reveals the gap, and leads to a resync
+		for (Segment segment : this.listOtherSegments())
+		{
+			this.readPositions.put(segment.path(), Files.size(segment.path()));
+			this.knownPeers.add(segment.proxyId());
+		}
+
+		this.lastHeartbeatMs = monotonicMillis();
+		this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Sync Receiver").setDaemon(true).build());
+		this.poller.scheduleWithFixedDelay(() -> this.poll(receiver), this.pollIntervalMs, this.pollIntervalMs, TimeUnit.MILLISECONDS);
+		this.logger.info("Exchanging list changes via directory {}", this.directory);
+	}
+
+	/**
+	 * The previous segment is left for the other proxies to finish reading, and expires with the peer timeout
+	 */
+	private synchronized void openNextSegment() throws IOException
+	{
+		if (this.output != null)
+		{
+			this.output.close();
+			this.output = null;
+		}
+		this.generation++;
+		Path file = this.directory.resolve(this.proxyId + "." + this.generation + FILE_EXTENSION);
+		this.output = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		this.ownFile = file;
+		this.outputSize = 0;
+	}
+
+	/**
+	 * Sorted by proxy, then by generation, which is the order to read them
+	 */
+	private List<Segment> listOtherSegments() throws IOException
+	{
+		List<Segment> segments = Lists.newArrayList();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + FILE_EXTENSION))
+		{
+			for (Path file : stream)
+			{
+				Segment segment = Segment.of(file);
+				if (segment != null && !segment.proxyId().equals(this.proxyId))
+				{
+					segments.add(segment);
+				}
+			}
+		}
+		segments.sort(Segment.ORDER);
+		return segments;
+	}
+
+	private void poll(Receiver receiver)
+	{
+		try
+		{
+			List<Segment> segments = this.listOtherSegments();
+			Set<Path> files = Sets.newHashSet();
+			Set<String> peers = Sets.newHashSet();
+			segments.forEach(segment -> {
+				files.add(segment.path());
+				peers.add(segment.proxyId());
+			});
+			this.readPositions.keySet().retainAll(files);
+			for (Segment segment : segments)
+			{
+				this.readNewMessages(segment.path(), receiver);
+			}
+			for (String peer : Sets.difference(this.knownPeers, peers))
+			{
+				receiver.onPeerGone(peer);
+			}
+			this.knownPeers = peers;
+
+			long now = monotonicMillis();
+			if (now - this.lastHeartbeatMs >= this.peerTimeoutMs / 4)
+			{
+				this.lastHeartbeatMs = now;
+				this.heartbeat();
+				this.deleteExpiredFiles(now);
+			}
+		}
+		catch (IOException e)
+		{
+			this.logger.warn("Failed to read list changes from directory {}: {}", this.directory, e.toString());
+		}
+		catch (RuntimeException e)
+		{
+			this.logger.error("Failed to apply list changes from directory {}", this.directory, e);
+		}
+	}
+
+	/**
+	 * Keep the own current segment from expiring, or start a new one if it got deleted, e.g. after the proxy was suspended for too long
+	 */
+	private synchronized void heartbeat() throws IOException
+	{
+		if (!this.started)
+		{
+			return;
+		}
+		if (this.ownFile == null || !Files.exists(this.ownFile))
+		{
+			this.logger.warn("Change file {} is gone, starting a new one", this.ownFile);
+			this.openNextSegment();
+			return;
+		}
+		Files.setLastModifiedTime(this.ownFile, FileTime.fromMillis(System.currentTimeMillis()));
+	}
+
+	private static long monotonicMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	/**
+	 * A file expires once its modification time and size stay the same for the peer timeout, measured with the local monotonic clock.
+	 * Files first seen by this proxy get the full timeout
+	 */
+	private void deleteExpiredFiles(long now) throws IOException
+	{
+		Set<Path> files = Sets.newHashSet();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + FILE_EXTENSION))
+		{
+			for (Path file : stream)
+			{
+				synchronized (this)
+				{
+					if (file.equals(this.ownFile))
+					{
+						continue;
+					}
+				}
+				files.add(file);
+				try
+				{
+					FileTime lastModified = Files.getLastModifiedTime(file);
+					long size = Files.size(file);
+					FileObservation previous = this.observations.get(file);
+					if (previous == null || !previous.lastModified().equals(lastModified) || previous.size() != size)
+					{
+						this.observations.put(file, new FileObservation(lastModified, size, now));
+					}
+					else if (now - previous.observedAtMs() > this.peerTimeoutMs)
+					{
+						Files.deleteIfExists(file);
+						this.logger.debug("Deleted expired change file {}", file);
+					}
+				}
+				catch (NoSuchFileException ignored)
+				{
+					// deleted by another proxy
+				}
+			}
+		}
+		this.observations.keySet().retainAll(files);
+	}
+
+	private void readNewMessages(Path file, Receiver receiver) throws IOException
+	{
+		long position = this.readPositions.getOrDefault(file, 0L);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (position + HEADER_SIZE <= size)
+			{
+				header.clear();
+				readFully(channel, header, position);
+				header.flip();
+				int length = header.getInt();
+				int crc = header.getInt();
+				if (length < 0 || length > MAX_PAYLOAD_SIZE)
+				{
+					this.logger.warn("Corrupted record in {} at {}, skipping the rest of the file", file, position);
+					position = size;
+					break;
+				}
+				if (position + HEADER_SIZE + length > size)
+				{
+					// still being written
+					break;
+				}
+
+				ByteBuffer payload = ByteBuffer.allocate(length);
+				readFully(channel, payload, position + HEADER_SIZE);
+				position += HEADER_SIZE + length;
+				CRC32 actualCrc = new CRC32();
+				actualCrc.update(payload.array());
+				if ((int)actualCrc.getValue() != crc)
+				{
+					this.logger.warn("Skipping corrupted record in {}", file);
+					continue;
+				}
+
+				SyncMessage message;
+				try
+				{
+					message = SyncMessage.decode(payload.array());
+				}
+				catch (IOException e)
+				{
+					this.logger.warn("Skipping unreadable record in {}: {}", file, e.toString());
+					continue;
+				}
+				receiver.receive(message);
+			}
+		}
+		catch (NoSuchFileException e)
+		{
+			// the proxy stopped, or the file expired
+		}
+		finally
+		{
+			this.readPositions.put(file, position);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException
+	{
+		while (buf.hasRemaining())
+		{
+			int n = channel.read(buf, position + buf.position());
+			if (n < 0)
+			{
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+
+	@Override
+	public void publish(SyncMessage message) throws IOException
+	{
+		byte[] payload = SyncMessage.encode(message);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+		record.putInt(payload.length);
+		record.putInt((int)crc.getValue());
+		record.put(payload);
+		record.flip();
+
+		synchronized (this)
+		{
+			if (!this.started)
+			{
+				throw new IOException("Transport is not started");
+			}
+			// also retries after a failed segment switch
+			if (this.output == null || (this.outputSize > 0 && this.outputSize + record.remaining() > this.segmentSizeBytes))
+			{
+				this.openNextSegment();
+			}
+			FileChannel output = this.output;
+			while (record.hasRemaining())
+			{
+				this.outputSize += output.write(record);
+			}
+			// a network mount might otherwise keep the record in the local cache for a while
+			output.force(false);
+		}
+	}
+
+	@Override
+	public synchronized void stop()
+	{
+		if (!this.started)
+		{
+			return;
+		}
+		this.started = false;
+		if (this.poller != null)
+		{
+			this.poller.shutdownNow();
+			this.poller = null;
+		}
+		if (this.output != null)
+		{
+			try
+			{
+				this.output.close();
+			}
+			catch (IOException e)
+			{
+				this.logger.warn("Failed to close the change file {}", this.ownFile, e);
+			}
+			this.output = null;
+		}
+		this.ownFile = null;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, this.proxyId + ".*" + FILE_EXTENSION))
+		{
+			for (Path file : stream)
+			{
+				Files.deleteIfExists(file);
+			}
+		}
+		catch (IOException e)
+		{
+			this.logger.warn("Failed to remove the change files of proxy {} in {}", this.proxyId, this.directory, e);
+		}
+	}
+}
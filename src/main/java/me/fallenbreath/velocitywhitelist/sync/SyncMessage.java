@@ -0,0 +1,174 @@
+package me.fallenbreath.velocitywhitelist.sync;
+
+import com.google.common.collect.Lists;
+import me.fallenbreath.velocitywhitelist.storage.ListJournal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A message exchanged between the proxies of a network, about the player list with the given key, e.g. "whitelist"
+ * <p>
+ * Layout: [byte version][byte type][utf origin][utf list][type specific content]
+ */
+public sealed interface SyncMessage
+{
+	byte VERSION = 2;
+	byte TYPE_CHANGE = 1;
+	byte TYPE_RESYNC_REQUEST = 2;
+	byte TYPE_CHANGE_SUMMARY = 3;
+	byte TYPE_ACK = 4;
+
+	/**
+	 * Id of the proxy which sent the message
+	 */
+	String origin();
+
+	String list();
+
+	/**
+	 * A modification made on the origin proxy. The sequence numbers of a list start from 1 and have no gap
+	 */
+	record Change(String origin, String list, long sequence, ListJournal.Entry entry) implements SyncMessage
+	{
+	}
+
+	/**
+	 * Asks the target proxy to send its {@link ChangeSummary}, after some of its changes are missed
+	 */
+	record ResyncRequest(String origin, String list, String target) implements SyncMessage
+	{
+	}
+
+	/**
+	 * The latest modification of each name and uuid made on the origin proxy, unless another proxy modified it afterwards,
+	 * or all proxies known by the origin have acknowledged it. Includes at least the unacknowledged changes up to the sequence number
+	 */
+	record ChangeSummary(String origin, String list, String target, long sequence, List<ListJournal.Entry> entries) implements SyncMessage
+	{
+	}
+
+	/**
+	 * Tells the target proxy that the origin proxy has applied its changes up to the sequence number
+	 */
+	record Ack(String origin, String list, String target, long sequence) implements SyncMessage
+	{
+	}
+
+	static byte[] encode(SyncMessage message) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(VERSION);
+		if (message instanceof Change m)
+		{
+			out.writeByte(TYPE_CHANGE);
+			out.writeUTF(m.origin());
+			out.writeUTF(m.list());
+			out.writeLong(m.sequence());
+			writeEntry(out, m.entry());
+		}
+		else if (message instanceof ResyncRequest m)
+		{
+			out.writeByte(TYPE_RESYNC_REQUEST);
+			out.writeUTF(m.origin());
+			out.writeUTF(m.list());
+			out.writeUTF(m.target());
+		}
+		else if (message instanceof ChangeSummary m)
+		{
+			out.writeByte(TYPE_CHANGE_SUMMARY);
+			out.writeUTF(m.origin());
+			out.writeUTF(m.list());
+			out.writeUTF(m.target());
+			out.writeLong(m.sequence());
+			out.writeInt(m.entries().size());
+			for (ListJournal.Entry entry : m.entries())
+			{
+				writeEntry(out, entry);
+			}
+		}
+		else if (message instanceof Ack m)
+		{
+			out.writeByte(TYPE_ACK);
+			out.writeUTF(m.origin());
+			out.writeUTF(m.list());
+			out.writeUTF(m.target());
+			out.writeLong(m.sequence());
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	static SyncMessage decode(byte[] bytes) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		byte version = in.readByte();
+		if (version != VERSION)
+		{
+			throw new IOException("Unsupported sync message version " + version);
+		}
+		byte type = in.readByte();
+		String origin = in.readUTF();
+		String list = in.readUTF();
+		try
+		{
+			return switch (type)
+			{
+				case TYPE_CHANGE -> decodeChange(in, origin, list);
+				case TYPE_RESYNC_REQUEST -> new ResyncRequest(origin, list, in.readUTF());
+				case TYPE_CHANGE_SUMMARY -> decodeChangeSummary(in, origin, list, bytes.length);
+				case TYPE_ACK -> new Ack(origin, list, in.readUTF(), in.readLong());
+				default -> throw new IOException("Unknown sync message type " + type);
+			};
+		}
+		catch (RuntimeException e)
+		{
+			throw new IOException("Malformed sync message", e);
+		}
+	}
+
+	private static void writeEntry(DataOutputStream out, ListJournal.Entry entry) throws IOException
+	{
+		ByteBuffer buf = ListJournal.encode(entry);
+		out.writeInt(buf.remaining());
+		out.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+	}
+
+	private static ListJournal.Entry readEntry(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if (length < 0 || length > in.available())
+		{
+			throw new IOException("Invalid change entry length " + length);
+		}
+		byte[] entry = new byte[length];
+		in.readFully(entry);
+		return ListJournal.decode(ByteBuffer.wrap(entry));
+	}
+
+	private static Change decodeChange(DataInputStream in, String origin, String list) throws IOException
+	{
+		long sequence = in.readLong();
+		return new Change(origin, list, sequence, readEntry(in));
+	}
+
+	private static ChangeSummary decodeChangeSummary(DataInputStream in, String origin, String list, int messageSize) throws IOException
+	{
+		String target = in.readUTF();
+		long sequence = in.readLong();
+		// the count is not trusted for preallocating
+		int count = in.readInt();
+		List<ListJournal.Entry> entries = Lists.newArrayListWithCapacity(Math.max(0, Math.min(count, messageSize)));
+		for (int i = 0; i < count; i++)
+		{
+			entries.add(readEntry(in));
+		}
+		return new ChangeSummary(origin, list, target, sequence, entries);
+	}
+}
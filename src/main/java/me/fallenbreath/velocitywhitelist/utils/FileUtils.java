@@ -4,26 +4,124 @@ import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
 
 public class FileUtils
 {
+	private static final int CRC_BUFFER_SIZE = 64 * 1024;
+
 	public static void safeWrite(Path path, String content) throws IOException
 	{
-		Path tempPath = path.resolveSibling(path.getFileName().toString() + ".tmp");
-		Files.writeString(tempPath, content, StandardCharsets.UTF_8);
-		Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+		safeWrite(path, content.getBytes(StandardCharsets.UTF_8));
 	}
 
-	public static void dumpYaml(Path path, Object data) throws IOException
+	public static void safeWrite(Path path, byte[] content) throws IOException
+	{
+		Path tempPath = createTempSibling(path);
+		try
+		{
+			Files.write(tempPath, content);
+			copyPermissions(path, tempPath);
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	/**
+	 * Create a unique temp file next to the given path, so concurrent writes to the same path never clobber each other's temp file
+	 * <p>
+	 * Unlike {@link Files#createTempFile}, which restricts the file to its owner, the file gets the default permissions
+	 */
+	public static Path createTempSibling(Path path) throws IOException
+	{
+		String prefix = path.getFileName().toString() + ".";
+		while (true)
+		{
+			Path tempPath = path.toAbsolutePath().resolveSibling(prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+			try
+			{
+				Files.newOutputStream(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+				return tempPath;
+			}
+			catch (FileAlreadyExistsException ignored)
+			{
+			}
+		}
+	}
+
+	/**
+	 * Keep the permissions of the file being replaced, if there's one and the file system has posix permissions
+	 */
+	public static void copyPermissions(Path source, Path target) throws IOException
+	{
+		PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+		PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+		if (sourceView == null || targetView == null)
+		{
+			return;
+		}
+		Set<PosixFilePermission> permissions;
+		try
+		{
+			permissions = sourceView.readAttributes().permissions();
+		}
+		catch (NoSuchFileException e)
+		{
+			return;
+		}
+		targetView.setPermissions(permissions);
+	}
+
+	/**
+	 * e.g. replaceExtension("foo/bar.yml", ".bin") -> "foo/bar.bin"
+	 */
+	public static Path replaceExtension(Path path, String newExtension)
+	{
+		String fileName = path.getFileName().toString();
+		int dot = fileName.lastIndexOf('.');
+		return path.resolveSibling((dot > 0 ? fileName.substring(0, dot) : fileName) + newExtension);
+	}
+
+	public static int crc32Of(Path path) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[CRC_BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(path))
+		{
+			int n;
+			while ((n = in.read(buffer)) > 0)
+			{
+				crc.update(buffer, 0, n);
+			}
+		}
+		return (int)crc.getValue();
+	}
+
+	public static String toYaml(Object data)
 	{
 		DumperOptions dumperOptions = new DumperOptions();
 		dumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
 
-		String yamlContent = new Yaml(dumperOptions).dump(data);
-		safeWrite(path, yamlContent);
+		return new Yaml(dumperOptions).dump(data);
+	}
+
+	public static void dumpYaml(Path path, Object data) throws IOException
+	{
+		safeWrite(path, toYaml(data));
 	}
 }
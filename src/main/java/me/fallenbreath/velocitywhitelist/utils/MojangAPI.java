@@ -1,9 +1,10 @@
 package me.fallenbreath.velocitywhitelist.utils;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.velocitypowered.api.proxy.ProxyServer;
+import me.fallenbreath.velocitywhitelist.metrics.PluginMetrics;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
@@ -16,10 +17,13 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.List;
-import java.util.Objects;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.function.BiConsumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MojangAPI
 {
@@ -31,73 +35,271 @@ public class MojangAPI
 		public String errorMessage;
 	}
 
-	private record QueryCacheEntry(String queryName, @Nullable QueryResult result, long expireAtMs)
+	public record QueryResult(UUID uuid, String playerName)
 	{
 	}
 
-	public record QueryResult(UUID uuid, String playerName)
+	private static final String ACCOUNT_URL_BASE = System.getProperty("velocitywhitelist.mojang.accountserver", "https://api.mojang.com/users/profiles/minecraft/");
+	// https://wiki.vg/Mojang_API#Usernames_to_UUIDs
+	private static final String BULK_PROFILES_URL = System.getProperty("velocitywhitelist.mojang.bulkprofileserver", "https://api.mojang.com/profiles/minecraft");
+	public static final int BULK_QUERY_MAX_NAMES = 10;
+	// a rate limited bulk query is retried this many times, waiting for Retry-After, or a doubling backoff if absent
+	private static final int BULK_QUERY_MAX_RETRIES = 3;
+	private static final long BULK_QUERY_INITIAL_BACKOFF_MS = 1000;
+	private static final long BULK_QUERY_MAX_BACKOFF_MS = 60 * 1000;
+	private static volatile MojangQueryCache queryCache = new MojangQueryCache(MojangQueryCache.Settings.DEFAULT);
+	private static volatile @Nullable HttpClient httpClient = null;
+	// concurrent queries of the same name share the same pending future
+	private static final Map<String, CompletableFuture<Optional<QueryResult>>> inFlightQueries = Maps.newConcurrentMap();
+	private static final LongAdder collapsedQueries = new LongAdder();
+
+	/**
+	 * Resolve the http client once, so connections can be reused across queries
+	 */
+	public static void init(ProxyServer server)
 	{
+		httpClient = createHttpClient(server);
+
+		PluginMetrics.MOJANG_CACHE.labels("size").bind(() -> getQueryCacheStats().size());
+		PluginMetrics.MOJANG_CACHE.labels("hits").bind(() -> getQueryCacheStats().hits());
+		PluginMetrics.MOJANG_CACHE.labels("misses").bind(() -> getQueryCacheStats().misses());
+		PluginMetrics.MOJANG_CACHE.labels("hit_rate").bind(() -> getQueryCacheStats().hitRate());
+		PluginMetrics.MOJANG_CACHE.labels("evictions").bind(() -> getQueryCacheStats().evictions());
+		PluginMetrics.MOJANG_CACHE.labels("collapsed_queries").bind(MojangAPI::getCollapsedQueryCount);
 	}
 
-	private static final String ACCOUNT_URL_BASE = System.getProperty("velocitywhitelist.mojang.accountserver", "https://api.mojang.com/users/profiles/minecraft/");
-	private static final int QUERY_CACHE_TTL_MS = 5 * 60 * 1000;  // 5min
-	private static final int QUERY_CACHE_EMPTY_TTL_MS = 60 * 1000;  // 1min
-	private static final int QUERY_CACHE_CAPACITY = 100;
-	private static final List<QueryCacheEntry> queryCache = Lists.newLinkedList();
+	private static void recordResponse(String api, long startNanos, String status)
+	{
+		PluginMetrics.MOJANG_REQUEST_SECONDS.labels(api).observeNanos(System.nanoTime() - startNanos);
+		PluginMetrics.MOJANG_RESPONSES.labels(api, status).inc();
+	}
 
-	public static Optional<QueryResult> queryPlayerByName(Logger logger, ProxyServer server, String name)
+	private static HttpClient getHttpClient()
 	{
-		synchronized (queryCache)
+		HttpClient client = httpClient;
+		if (client == null)
 		{
-			long now = System.currentTimeMillis();
-			queryCache.removeIf(e -> now > e.expireAtMs);
-			for (QueryCacheEntry entry : queryCache)
-			{
-				if (Objects.equals(entry.queryName, name))
-				{
-					return Optional.ofNullable(entry.result());
-				}
-			}
+			// not initialized, should not happen in practice
+			client = httpClient = HttpClient.newHttpClient();
 		}
-		BiConsumer<@Nullable QueryResult, Integer> addQueryCache = (qr, ttl) -> {
-			synchronized (queryCache)
-			{
-				queryCache.add(new QueryCacheEntry(name, qr, System.currentTimeMillis() + ttl));
-				while (queryCache.size() > QUERY_CACHE_CAPACITY)
-				{
-					queryCache.remove(0);
-				}
-			}
-		};
+		return client;
+	}
 
-		String url = ACCOUNT_URL_BASE + name;
-		HttpClient client = createHttpClient(server);
+	/**
+	 * Recreate the query cache if the settings are changed
+	 */
+	public static void configureQueryCache(MojangQueryCache.Settings settings)
+	{
+		if (!queryCache.getSettings().equals(settings))
+		{
+			queryCache = new MojangQueryCache(settings);
+		}
+	}
+
+	public static MojangQueryCache.Stats getQueryCacheStats()
+	{
+		return queryCache.getStats();
+	}
+
+	/**
+	 * @return empty if the name is not cached, otherwise the cached query result, which might be an empty result
+	 */
+	@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+	public static Optional<Optional<QueryResult>> getCachedResult(String name)
+	{
+		return queryCache.get(name);
+	}
+
+	private static void addQueryCache(String name, @Nullable QueryResult result)
+	{
+		queryCache.put(name, result);
+	}
+
+	/**
+	 * Player names are case-insensitive
+	 */
+	static String normalizeName(String name)
+	{
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	static void recordCollapsedQuery()
+	{
+		collapsedQueries.increment();
+	}
+
+	/**
+	 * @return the amount of queries that were served by an identical in-flight query, instead of a new request
+	 */
+	public static long getCollapsedQueryCount()
+	{
+		return collapsedQueries.sum();
+	}
+
+	/**
+	 * The returned future never completes exceptionally. Failures are logged and result in an empty result
+	 */
+	public static CompletableFuture<Optional<QueryResult>> queryPlayerByNameAsync(Logger logger, String name)
+	{
+		var cached = getCachedResult(name);
+		if (cached.isPresent())
+		{
+			return CompletableFuture.completedFuture(cached.get());
+		}
+
+		String key = normalizeName(name);
+		CompletableFuture<Optional<QueryResult>> future = new CompletableFuture<>();
+		CompletableFuture<Optional<QueryResult>> existing = inFlightQueries.putIfAbsent(key, future);
+		if (existing != null)
+		{
+			recordCollapsedQuery();
+			return existing;
+		}
+
+		sendQuery(logger, name).whenComplete((result, throwable) -> {
+			inFlightQueries.remove(key, future);
+			future.complete(result != null ? result : Optional.empty());
+		});
+		return future;
+	}
+
+	private static CompletableFuture<Optional<QueryResult>> sendQuery(Logger logger, String name)
+	{
+		HttpRequest request;
+		try
+		{
+			request = HttpRequest.newBuilder()
+					.GET()
+					.uri(URI.create(ACCOUNT_URL_BASE + name))
+					.timeout(Duration.ofSeconds(5))
+					.build();
+		}
+		catch (IllegalArgumentException e)
+		{
+			logger.warn("Get UUID from mojang API failed: {}", e.toString());
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+
+		long startNanos = System.nanoTime();
+		return getHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString())
+				.thenApply(response -> {
+					recordResponse("single", startNanos, String.valueOf(response.statusCode()));
+					ResponseObject obj = new Gson().fromJson(response.body(), ResponseObject.class);
+					if (response.statusCode() == 204 || obj == null || (obj.errorMessage != null && obj.errorMessage.startsWith("Couldn't find any profile with that name")))
+					{
+						addQueryCache(name, null);
+					}
+
+					if (obj == null || Strings.isNullOrEmpty(obj.id))
+					{
+						return Optional.<QueryResult>empty();
+					}
+					var ret = UuidUtils.tryParseUuid(obj.id).map(uuid -> new QueryResult(uuid, obj.name));
+					ret.ifPresent(result -> addQueryCache(name, result));
+					return ret;
+				})
+				.exceptionally(throwable -> {
+					if (throwable instanceof CompletionException && throwable.getCause() instanceof IOException)
+					{
+						recordResponse("single", startNanos, "error");
+					}
+					logger.warn("Get UUID from mojang API failed: {}", (throwable instanceof CompletionException ? throwable.getCause() : throwable).toString());
+					return Optional.empty();
+				});
+	}
+
+	/**
+	 * Query at most {@link #BULK_QUERY_MAX_NAMES} names with a single request. Results are cached
+	 *
+	 * @return the found players, keyed by the query names. Names that are not found are absent
+	 * A rate limited request is retried a few times before giving up
+	 *
+	 * @throws IOException if the request failed. Nothing is cached in this case
+	 */
+	public static Map<String, QueryResult> queryPlayersByNames(List<String> names) throws IOException, InterruptedException
+	{
+		if (names.size() > BULK_QUERY_MAX_NAMES)
+		{
+			throw new IllegalArgumentException("Too many names in a bulk query: " + names.size());
+		}
 
 		HttpRequest request = HttpRequest.newBuilder()
-				.GET()
-				.uri(URI.create(url))
+				.POST(HttpRequest.BodyPublishers.ofString(new Gson().toJson(names)))
+				.uri(URI.create(BULK_PROFILES_URL))
+				.header("Content-Type", "application/json")
 				.timeout(Duration.ofSeconds(5))
 				.build();
-		try
+		HttpResponse<String> response;
+		long backoffMs = BULK_QUERY_INITIAL_BACKOFF_MS;
+		for (int attempt = 0; ; attempt++)
+		{
+			long startNanos = System.nanoTime();
+			try
+			{
+				response = getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+			}
+			catch (IOException e)
+			{
+				recordResponse("bulk", startNanos, "error");
+				throw e;
+			}
+			recordResponse("bulk", startNanos, String.valueOf(response.statusCode()));
+			if (response.statusCode() != 429 || attempt >= BULK_QUERY_MAX_RETRIES)
+			{
+				break;
+			}
+			Thread.sleep(getRetryAfterMs(response).orElse(backoffMs));
+			backoffMs = Math.min(backoffMs * 2, BULK_QUERY_MAX_BACKOFF_MS);
+		}
+		if (response.statusCode() != 200)
 		{
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-			ResponseObject obj = new Gson().fromJson(response.body(), ResponseObject.class);
-			if (response.statusCode() == 204 || (obj.errorMessage != null && obj.errorMessage.startsWith("Couldn't find any profile with that name")))
+			throw new IOException("Unexpected status code " + response.statusCode() + " from the bulk profiles API");
+		}
+
+		ResponseObject[] objects = new Gson().fromJson(response.body(), ResponseObject[].class);
+		Map<String, QueryResult> foundByLowerName = Maps.newHashMap();
+		if (objects != null)
+		{
+			for (ResponseObject obj : objects)
 			{
-				addQueryCache.accept(null, QUERY_CACHE_EMPTY_TTL_MS);
+				if (obj != null && obj.name != null && !Strings.isNullOrEmpty(obj.id))
+				{
+					UuidUtils.tryParseUuid(obj.id).ifPresent(uuid -> foundByLowerName.put(normalizeName(obj.name), new QueryResult(uuid, obj.name)));
+				}
 			}
+		}
 
-			if (Strings.isNullOrEmpty(obj.id))
+		// player names are case-insensitive
+		Map<String, QueryResult> results = Maps.newHashMap();
+		for (String name : names)
+		{
+			QueryResult result = foundByLowerName.get(normalizeName(name));
+			if (result != null)
 			{
-				return Optional.empty();
+				results.put(name, result);
 			}
-			var ret = UuidUtils.tryParseUuid(obj.id).map(uuid -> new QueryResult(uuid, obj.name));
-			ret.ifPresent(result -> addQueryCache.accept(result, QUERY_CACHE_TTL_MS));
-			return ret;
+			addQueryCache(name, result);
 		}
-		catch (IOException | InterruptedException | IllegalArgumentException e)
+		return results;
+	}
+
+	/**
+	 * The delay-seconds form of the Retry-After header, capped by the max backoff
+	 */
+	private static Optional<Long> getRetryAfterMs(HttpResponse<?> response)
+	{
+		Optional<String> header = response.headers().firstValue("Retry-After");
+		if (header.isEmpty())
+		{
+			return Optional.empty();
+		}
+		try
+		{
+			long seconds = Long.parseLong(header.get().trim());
+			return seconds >= 0 ? Optional.of(Math.min(seconds * 1000, BULK_QUERY_MAX_BACKOFF_MS)) : Optional.empty();
+		}
+		catch (NumberFormatException e)
 		{
-			logger.warn("Get UUID from mojang API failed: {}", e.toString());
 			return Optional.empty();
 		}
 	}
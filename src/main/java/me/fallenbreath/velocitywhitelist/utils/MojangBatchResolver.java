@@ -0,0 +1,144 @@
+package me.fallenbreath.velocitywhitelist.utils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers name lookups for a short window, and resolves them with the Mojang bulk profiles API,
+ * {@link MojangAPI#BULK_QUERY_MAX_NAMES} names per request
+ * <p>
+ * Requests are sent one by one on a single thread, which is friendlier to the rate limit
+ */
+public class MojangBatchResolver
+{
+	private static final long BATCH_WINDOW_MS = 50;
+
+	private record PendingLookup(String name, CompletableFuture<Optional<MojangAPI.QueryResult>> future)
+	{
+	}
+
+	private final Logger logger;
+	private final ScheduledExecutorService executor;
+	private final List<PendingLookup> pending = Lists.newArrayList();
+	// keyed by normalized name, for deduplicating concurrent lookups of the same name
+	private final Map<String, CompletableFuture<Optional<MojangAPI.QueryResult>>> inFlight = Maps.newConcurrentMap();
+	private @Nullable ScheduledFuture<?> scheduledFlush = null;
+
+	public MojangBatchResolver(Logger logger)
+	{
+		this.logger = logger;
+		this.executor = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("VelocityWhitelist Mojang Resolver").setDaemon(true).build()
+		);
+	}
+
+	public CompletableFuture<Optional<MojangAPI.QueryResult>> queryPlayerByName(String name)
+	{
+		var cached = MojangAPI.getCachedResult(name);
+		if (cached.isPresent())
+		{
+			return CompletableFuture.completedFuture(cached.get());
+		}
+
+		String key = MojangAPI.normalizeName(name);
+		CompletableFuture<Optional<MojangAPI.QueryResult>> future = new CompletableFuture<>();
+		CompletableFuture<Optional<MojangAPI.QueryResult>> existing = this.inFlight.putIfAbsent(key, future);
+		if (existing != null)
+		{
+			MojangAPI.recordCollapsedQuery();
+			return existing;
+		}
+		future.whenComplete((result, throwable) -> this.inFlight.remove(key, future));
+
+		try
+		{
+			synchronized (this.pending)
+			{
+				this.pending.add(new PendingLookup(name, future));
+				if (this.pending.size() >= MojangAPI.BULK_QUERY_MAX_NAMES)
+				{
+					List<PendingLookup> batch = this.takePending();
+					this.executor.execute(() -> this.resolveBatch(batch));
+				}
+				else if (this.scheduledFlush == null)
+				{
+					this.scheduledFlush = this.executor.schedule(this::flushPending, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+		catch (RejectedExecutionException e)
+		{
+			future.complete(Optional.empty());
+		}
+		return future;
+	}
+
+	private List<PendingLookup> takePending()
+	{
+		List<PendingLookup> batch = Lists.newArrayList(this.pending);
+		this.pending.clear();
+		if (this.scheduledFlush != null)
+		{
+			this.scheduledFlush.cancel(false);
+			this.scheduledFlush = null;
+		}
+		return batch;
+	}
+
+	private void flushPending()
+	{
+		List<PendingLookup> batch;
+		synchronized (this.pending)
+		{
+			batch = this.takePending();
+		}
+		this.resolveBatch(batch);
+	}
+
+	private void resolveBatch(List<PendingLookup> batch)
+	{
+		for (List<PendingLookup> chunk : Lists.partition(batch, MojangAPI.BULK_QUERY_MAX_NAMES))
+		{
+			List<String> names = chunk.stream().map(PendingLookup::name).distinct().toList();
+			try
+			{
+				Map<String, MojangAPI.QueryResult> results = MojangAPI.queryPlayersByNames(names);
+				chunk.forEach(lookup -> lookup.future().complete(Optional.ofNullable(results.get(lookup.name()))));
+			}
+			catch (IOException | IllegalArgumentException e)
+			{
+				this.logger.warn("Get UUIDs from mojang bulk API failed: {}", e.toString());
+				chunk.forEach(lookup -> lookup.future().complete(Optional.empty()));
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				batch.forEach(lookup -> lookup.future().complete(Optional.empty()));
+				return;
+			}
+		}
+	}
+
+	public void shutdown()
+	{
+		this.executor.shutdownNow();
+		synchronized (this.pending)
+		{
+			this.takePending().forEach(lookup -> lookup.future().complete(Optional.empty()));
+		}
+	}
+}
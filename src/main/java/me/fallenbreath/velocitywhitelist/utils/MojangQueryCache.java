@@ -0,0 +1,99 @@
+package me.fallenbreath.velocitywhitelist.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent, size bounded cache of player name lookup results, with separated TTLs for found and not-found results
+ * <p>
+ * Player names are case-insensitive, so are the cache keys
+ */
+public class MojangQueryCache
+{
+	public record Settings(int capacity, long ttlMs, long negativeTtlMs)
+	{
+		public static final Settings DEFAULT = new Settings(1000, 5 * 60 * 1000, 60 * 1000);
+	}
+
+	public record Stats(long hits, long misses, long evictions, long size)
+	{
+		public double hitRate()
+		{
+			long total = this.hits + this.misses;
+			return total > 0 ? (double)this.hits / total : 0;
+		}
+	}
+
+	private record Entry(@Nullable MojangAPI.QueryResult result, long expireAtMs)
+	{
+	}
+
+	private final Settings settings;
+	private final Cache<String, Entry> cache;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public MojangQueryCache(Settings settings)
+	{
+		this.settings = settings;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(settings.capacity())
+				// entries are checked against their own ttl on read, this is only for cleaning up the expired ones
+				.expireAfterWrite(Math.max(settings.ttlMs(), settings.negativeTtlMs()), TimeUnit.MILLISECONDS)
+				.removalListener(notification -> {
+					if (notification.getCause() == RemovalCause.SIZE)
+					{
+						this.evictions.increment();
+					}
+				})
+				.build();
+	}
+
+	public Settings getSettings()
+	{
+		return this.settings;
+	}
+
+	/**
+	 * @return empty if the name is not cached, otherwise the cached query result, which might be an empty result
+	 */
+	@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+	public Optional<Optional<MojangAPI.QueryResult>> get(String name)
+	{
+		String key = MojangAPI.normalizeName(name);
+		Entry entry = this.cache.getIfPresent(key);
+		if (entry != null && System.currentTimeMillis() > entry.expireAtMs())
+		{
+			this.cache.asMap().remove(key, entry);
+			entry = null;
+		}
+		if (entry == null)
+		{
+			this.misses.increment();
+			return Optional.empty();
+		}
+		this.hits.increment();
+		return Optional.of(Optional.ofNullable(entry.result()));
+	}
+
+	public void put(String name, @Nullable MojangAPI.QueryResult result)
+	{
+		long ttl = result != null ? this.settings.ttlMs() : this.settings.negativeTtlMs();
+		if (ttl > 0)
+		{
+			this.cache.put(MojangAPI.normalizeName(name), new Entry(result, System.currentTimeMillis() + ttl));
+		}
+	}
+
+	public Stats getStats()
+	{
+		return new Stats(this.hits.sum(), this.misses.sum(), this.evictions.sum(), this.cache.size());
+	}
+}
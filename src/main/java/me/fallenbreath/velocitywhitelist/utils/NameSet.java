@@ -0,0 +1,338 @@
+package me.fallenbreath.velocitywhitelist.utils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An insertion-ordered set of player names, which optionally treats names that only differ in ASCII letter case as the same
+ * <p>
+ * The case folding is done inline while hashing and comparing, so lookups never allocate.
+ * The hash table is open-addressing with linear probing, pointing into a dense array of names in insertion order.
+ * Removed names leave a null tombstone in the dense array, which gets compacted during {@link #copy}
+ * <p>
+ * Not thread-safe
+ */
+public final class NameSet extends AbstractSet<String>
+{
+	private static final int FREE = -1;
+	private static final int MIN_CAPACITY = 16;
+
+	private final boolean caseInsensitive;
+
+	// slot i holds the entry index slotEntries[i], or FREE if the slot is unused
+	private int[] slotEntries;
+	private int mask;
+
+	// entries in insertion order, removed entries are null
+	private String[] entryNames;
+	private int[] entryHashes;
+	private int entryCount;  // including the removed ones
+	private int size;
+	private int modCount;
+
+	public NameSet(boolean caseInsensitive)
+	{
+		this(caseInsensitive, 0);
+	}
+
+	public NameSet(boolean caseInsensitive, int expectedSize)
+	{
+		this.caseInsensitive = caseInsensitive;
+		int capacity = tableCapacityFor(expectedSize);
+		this.slotEntries = new int[capacity];
+		Arrays.fill(this.slotEntries, FREE);
+		this.mask = capacity - 1;
+		this.entryNames = new String[Math.max(expectedSize, MIN_CAPACITY / 2)];
+		this.entryHashes = new int[this.entryNames.length];
+		this.entryCount = 0;
+		this.size = 0;
+	}
+
+	private static int tableCapacityFor(int expectedSize)
+	{
+		// keep the load factor under 0.5
+		long wanted = Math.max((long)expectedSize * 2, MIN_CAPACITY);
+		if (wanted > (1 << 30))
+		{
+			throw new IllegalArgumentException("Too many entries: " + expectedSize);
+		}
+		return Integer.highestOneBit((int)wanted - 1) << 1;
+	}
+
+	public boolean isCaseInsensitive()
+	{
+		return this.caseInsensitive;
+	}
+
+	private static char foldCase(char c)
+	{
+		return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+	}
+
+	/**
+	 * @return a spelling that equals the one of every name treated as the same name by this set, e.g. for using the names as map keys
+	 */
+	public String normalize(String name)
+	{
+		if (!this.caseInsensitive)
+		{
+			return name;
+		}
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++)
+		{
+			chars[i] = foldCase(chars[i]);
+		}
+		return new String(chars);
+	}
+
+	private int hash(String name)
+	{
+		if (!this.caseInsensitive)
+		{
+			return mix(name.hashCode());
+		}
+		int h = 0;
+		for (int i = 0; i < name.length(); i++)
+		{
+			h = 31 * h + foldCase(name.charAt(i));
+		}
+		return mix(h);
+	}
+
+	private static int mix(int h)
+	{
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private boolean nameEquals(String a, String b)
+	{
+		if (!this.caseInsensitive)
+		{
+			return a.equals(b);
+		}
+		if (a.length() != b.length())
+		{
+			return false;
+		}
+		for (int i = 0; i < a.length(); i++)
+		{
+			char ca = a.charAt(i);
+			char cb = b.charAt(i);
+			if (ca != cb && foldCase(ca) != foldCase(cb))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * @return the slot index of the given name, or -1 if absent
+	 */
+	private int findSlot(String name, int hash)
+	{
+		for (int slot = hash & this.mask; ; slot = (slot + 1) & this.mask)
+		{
+			int entry = this.slotEntries[slot];
+			if (entry == FREE)
+			{
+				return -1;
+			}
+			if (this.entryHashes[entry] == hash && this.nameEquals(this.entryNames[entry], name))
+			{
+				return slot;
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return o instanceof String name && this.findSlot(name, this.hash(name)) >= 0;
+	}
+
+	/**
+	 * @return the stored spelling of the given name, or null if absent
+	 */
+	public @Nullable String getStored(String name)
+	{
+		int slot = this.findSlot(name, this.hash(name));
+		return slot >= 0 ? this.entryNames[this.slotEntries[slot]] : null;
+	}
+
+	/**
+	 * The spelling of an existing name is not changed
+	 */
+	@Override
+	public boolean add(String name)
+	{
+		int hash = this.hash(name);
+		if (this.findSlot(name, hash) >= 0)
+		{
+			return false;
+		}
+
+		if ((this.size + 1) * 2 > this.slotEntries.length)
+		{
+			this.rehash(tableCapacityFor(this.size + 1));
+		}
+		if (this.entryCount == this.entryNames.length)
+		{
+			int newLength = this.entryNames.length + (this.entryNames.length >> 1) + 1;
+			this.entryNames = Arrays.copyOf(this.entryNames, newLength);
+			this.entryHashes = Arrays.copyOf(this.entryHashes, newLength);
+		}
+
+		int entry = this.entryCount++;
+		this.entryNames[entry] = name;
+		this.entryHashes[entry] = hash;
+		this.insertSlot(hash, entry);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	private void insertSlot(int hash, int entry)
+	{
+		int slot = hash & this.mask;
+		while (this.slotEntries[slot] != FREE)
+		{
+			slot = (slot + 1) & this.mask;
+		}
+		this.slotEntries[slot] = entry;
+	}
+
+	private void rehash(int capacity)
+	{
+		this.slotEntries = new int[capacity];
+		Arrays.fill(this.slotEntries, FREE);
+		this.mask = capacity - 1;
+		for (int i = 0; i < this.entryCount; i++)
+		{
+			if (this.entryNames[i] != null)
+			{
+				this.insertSlot(this.entryHashes[i], i);
+			}
+		}
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		if (!(o instanceof String name))
+		{
+			return false;
+		}
+		int slot = this.findSlot(name, this.hash(name));
+		if (slot < 0)
+		{
+			return false;
+		}
+
+		this.entryNames[this.slotEntries[slot]] = null;
+		this.size--;
+		this.modCount++;
+
+		// backward shift deletion, so no tombstone is needed in the hash table
+		int hole = slot;
+		for (int next = (hole + 1) & this.mask; this.slotEntries[next] != FREE; next = (next + 1) & this.mask)
+		{
+			int home = this.entryHashes[this.slotEntries[next]] & this.mask;
+			// move the entry at next into the hole, if its home slot is not within (hole, next]
+			if (((next - home) & this.mask) >= ((next - hole) & this.mask))
+			{
+				this.slotEntries[hole] = this.slotEntries[next];
+				hole = next;
+			}
+		}
+		this.slotEntries[hole] = FREE;
+		return true;
+	}
+
+	/**
+	 * @return a compacted copy of this set with the same case sensitivity, which can be modified independently
+	 */
+	public NameSet copy()
+	{
+		NameSet copy = new NameSet(this.caseInsensitive, this.size);
+		for (int i = 0; i < this.entryCount; i++)
+		{
+			if (this.entryNames[i] != null)
+			{
+				copy.add(this.entryNames[i]);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Iterates in insertion order
+	 */
+	@Override
+	public Iterator<String> iterator()
+	{
+		return new Iterator<>()
+		{
+			private int next = this.skipRemoved(0);
+			private int last = -1;
+			private int expectedModCount = NameSet.this.modCount;
+
+			private int skipRemoved(int i)
+			{
+				while (i < NameSet.this.entryCount && NameSet.this.entryNames[i] == null)
+				{
+					i++;
+				}
+				return i;
+			}
+
+			@Override
+			public boolean hasNext()
+			{
+				return this.next < NameSet.this.entryCount;
+			}
+
+			@Override
+			public String next()
+			{
+				if (NameSet.this.modCount != this.expectedModCount)
+				{
+					throw new ConcurrentModificationException();
+				}
+				if (!this.hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				this.last = this.next;
+				this.next = this.skipRemoved(this.next + 1);
+				return NameSet.this.entryNames[this.last];
+			}
+
+			@Override
+			public void remove()
+			{
+				if (this.last < 0)
+				{
+					throw new IllegalStateException();
+				}
+				// removal leaves a tombstone in the dense array, so the iteration position stays valid
+				NameSet.this.remove(NameSet.this.entryNames[this.last]);
+				this.last = -1;
+				this.expectedModCount = NameSet.this.modCount;
+			}
+		};
+	}
+}
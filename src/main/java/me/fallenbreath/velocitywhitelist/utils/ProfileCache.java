@@ -0,0 +1,253 @@
+package me.fallenbreath.velocitywhitelist.utils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * A persistent name <-> UUID cache of known player profiles, so resolved players survive proxy restarts
+ * <p>
+ * Unverified profiles, e.g. the name comments in the player lists, only serve uuid -> name lookups.
+ * They are never used for resolving a name, and are the first to be evicted
+ * <p>
+ * File layout: [int magic][int version][int count], then count records of
+ * [long uuid msb][long uuid lsb][long updated at ms, 0 if unverified][short name length][utf8 name]
+ */
+public class ProfileCache
+{
+	private static final int MAGIC = 0x56575043;  // "VWPC"
+	// version 1 stored unverified profiles as verified ones
+	private static final int VERSION = 2;
+	// a login with an unchanged name refreshes the profile at most this often, so the login path rarely takes the lock
+	private static final long REFRESH_INTERVAL_MS = 60 * 60 * 1000;
+
+	public record Profile(UUID uuid, String name, long updatedAtMs)
+	{
+		private static final long UNVERIFIED = 0;
+
+		/**
+		 * If it comes from mojang or a login
+		 */
+		public boolean isVerified()
+		{
+			return this.updatedAtMs != UNVERIFIED;
+		}
+	}
+
+	private final Logger logger;
+	private final Path filePath;
+	private final LongSupplier nameTtlMsGetter;
+	private final IntSupplier capacityGetter;
+	private final Map<String, Profile> byName = Maps.newConcurrentMap();
+	private final Map<UUID, Profile> byUuid = Maps.newConcurrentMap();
+	private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+	/**
+	 * @param nameTtlMsGetter name -> uuid mappings older than this are ignored, since the name might belong to someone else now
+	 * @param capacityGetter max amount of profiles. The least recently updated ones are evicted when it's exceeded
+	 */
+	public ProfileCache(Logger logger, Path filePath, LongSupplier nameTtlMsGetter, IntSupplier capacityGetter)
+	{
+		this.logger = logger;
+		this.filePath = filePath;
+		this.nameTtlMsGetter = nameTtlMsGetter;
+		this.capacityGetter = capacityGetter;
+	}
+
+	public int size()
+	{
+		return this.byUuid.size();
+	}
+
+	public Optional<Profile> getByName(String name)
+	{
+		Profile profile = this.byName.get(MojangAPI.normalizeName(name));
+		if (profile != null && System.currentTimeMillis() - profile.updatedAtMs() <= this.nameTtlMsGetter.getAsLong())
+		{
+			return Optional.of(profile);
+		}
+		return Optional.empty();
+	}
+
+	public Optional<Profile> getByUuid(UUID uuid)
+	{
+		return Optional.ofNullable(this.byUuid.get(uuid));
+	}
+
+	public void put(UUID uuid, String name)
+	{
+		long now = System.currentTimeMillis();
+		Profile old = this.byUuid.get(uuid);
+		if (old != null && old.name().equals(name) && now - old.updatedAtMs() < REFRESH_INTERVAL_MS)
+		{
+			// nothing new, which is the case of most logins. Checked without the lock
+			return;
+		}
+		this.put(new Profile(uuid, name, now), false);
+	}
+
+	/**
+	 * For profiles from a less trustworthy source, e.g. name comments in the player lists. Existing profiles are kept
+	 */
+	public void putUnverified(UUID uuid, String name)
+	{
+		if (this.byUuid.containsKey(uuid))
+		{
+			return;
+		}
+		this.put(new Profile(uuid, name, Profile.UNVERIFIED), true);
+	}
+
+	private synchronized void put(Profile profile, boolean onlyIfAbsent)
+	{
+		Profile old = this.byUuid.get(profile.uuid());
+		if (old != null)
+		{
+			if (onlyIfAbsent)
+			{
+				return;
+			}
+			if (old.name().equals(profile.name()) && profile.updatedAtMs() - old.updatedAtMs() < REFRESH_INTERVAL_MS)
+			{
+				// nothing new, don't bother rewriting the file
+				return;
+			}
+			// the player got renamed
+			this.byName.remove(MojangAPI.normalizeName(old.name()), old);
+		}
+
+		if (profile.isVerified())
+		{
+			Profile oldOwner = this.byName.put(MojangAPI.normalizeName(profile.name()), profile);
+			if (oldOwner != null && !oldOwner.uuid().equals(profile.uuid()))
+			{
+				// the name is taken by another player
+				this.byUuid.remove(oldOwner.uuid(), oldOwner);
+			}
+		}
+		this.byUuid.put(profile.uuid(), profile);
+		this.dirty.set(true);
+
+		int capacity = this.capacityGetter.getAsInt();
+		if (this.byUuid.size() > capacity)
+		{
+			this.evict(capacity);
+		}
+	}
+
+	/**
+	 * Evict the unverified profiles, then the least recently updated ones. Goes a bit below the capacity, so the scan does not happen on every put
+	 */
+	private void evict(int capacity)
+	{
+		int target = capacity - capacity / 10;
+		List<Profile> profiles = Lists.newArrayList(this.byUuid.values());
+		profiles.sort(Comparator.comparingLong(Profile::updatedAtMs));
+		for (int i = 0; i < profiles.size() - target; i++)
+		{
+			Profile profile = profiles.get(i);
+			this.byUuid.remove(profile.uuid(), profile);
+			this.byName.remove(MojangAPI.normalizeName(profile.name()), profile);
+		}
+	}
+
+	public void load() throws IOException
+	{
+		if (!Files.isRegularFile(this.filePath))
+		{
+			return;
+		}
+
+		int count = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.filePath))))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			{
+				this.logger.warn("Ignoring profile cache file {} with unknown format", this.filePath);
+				return;
+			}
+			int expectedCount = in.readInt();
+			synchronized (this)
+			{
+				for (; count < expectedCount; count++)
+				{
+					UUID uuid = new UUID(in.readLong(), in.readLong());
+					long updatedAtMs = in.readLong();
+					byte[] nameBytes = new byte[in.readUnsignedShort()];
+					in.readFully(nameBytes);
+					this.put(new Profile(uuid, new String(nameBytes, StandardCharsets.UTF_8), updatedAtMs), true);
+				}
+			}
+		}
+		catch (EOFException e)
+		{
+			this.logger.warn("Profile cache file {} is truncated, loaded {} profiles", this.filePath, count);
+		}
+		this.dirty.set(false);
+		this.logger.info("Loaded {} profiles from the profile cache", count);
+	}
+
+	public void saveIfDirty()
+	{
+		if (!this.dirty.getAndSet(false))
+		{
+			return;
+		}
+
+		List<Profile> profiles = List.copyOf(this.byUuid.values());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(12 + profiles.size() * 48);
+		try (DataOutputStream out = new DataOutputStream(bytes))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(profiles.size());
+			for (Profile profile : profiles)
+			{
+				byte[] nameBytes = profile.name().getBytes(StandardCharsets.UTF_8);
+				out.writeLong(profile.uuid().getMostSignificantBits());
+				out.writeLong(profile.uuid().getLeastSignificantBits());
+				out.writeLong(profile.updatedAtMs());
+				out.writeShort(nameBytes.length);
+				out.write(nameBytes);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new AssertionError("ByteArrayOutputStream should not throw", e);
+		}
+
+		try
+		{
+			FileUtils.safeWrite(this.filePath, bytes.toByteArray());
+		}
+		catch (IOException e)
+		{
+			this.dirty.set(true);
+			this.logger.error("Failed to save the profile cache", e);
+		}
+	}
+
+	public @Nullable String getNameOrNull(UUID uuid)
+	{
+		return this.getByUuid(uuid).map(Profile::name).orElse(null);
+	}
+}
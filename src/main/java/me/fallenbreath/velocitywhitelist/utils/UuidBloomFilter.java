@@ -0,0 +1,60 @@
+package me.fallenbreath.velocitywhitelist.utils;
+
+/**
+ * A fixed-size Bloom filter of UUIDs, with around 1% false positive rate when filled with the expected amount of entries
+ * <p>
+ * Not thread-safe for {@link #add}. Fill it before publishing it to other threads
+ */
+public final class UuidBloomFilter
+{
+	private static final int BITS_PER_ENTRY = 10;
+	private static final int HASH_COUNT = 7;
+
+	private final long[] words;
+	private final long bitCount;
+
+	public UuidBloomFilter(int expectedEntries)
+	{
+		this.words = new long[(int)Math.max(1, ((long)expectedEntries * BITS_PER_ENTRY + 63) / 64)];
+		this.bitCount = (long)this.words.length * 64;
+	}
+
+	private static long mix(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	public void add(long msb, long lsb)
+	{
+		long h1 = mix(msb ^ mix(lsb));
+		long h2 = mix(h1) | 1;
+		for (int i = 0; i < HASH_COUNT; i++)
+		{
+			long bit = Long.remainderUnsigned(h1 + i * h2, this.bitCount);
+			this.words[(int)(bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * @return false if the uuid is definitely not added, true if it might be added
+	 */
+	public boolean mightContain(long msb, long lsb)
+	{
+		long h1 = mix(msb ^ mix(lsb));
+		long h2 = mix(h1) | 1;
+		for (int i = 0; i < HASH_COUNT; i++)
+		{
+			long bit = Long.remainderUnsigned(h1 + i * h2, this.bitCount);
+			if ((this.words[(int)(bit >>> 6)] & (1L << bit)) == 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
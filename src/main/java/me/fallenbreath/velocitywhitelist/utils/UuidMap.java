@@ -0,0 +1,253 @@
+package me.fallenbreath.velocitywhitelist.utils;
+
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An insertion-ordered UUID -> nullable name map, with the UUIDs stored as primitive longs
+ * <p>
+ * The hash table is open-addressing with linear probing. The 2 halves of a UUID key are stored next to each other
+ * in the same long array, so a probe sequence usually stays inside a single cache line, and lookups never allocate
+ * <p>
+ * Entries are additionally kept in insertion order in a dense array, with names stored in a side table next to it.
+ * Removed entries leave a tombstone in the dense array, which gets compacted during {@link #copy}
+ * <p>
+ * Not thread-safe
+ */
+public final class UuidMap implements UuidStore
+{
+	private static final int FREE = -1;
+	private static final int MIN_CAPACITY = 16;
+
+	// slot i holds key (table[2i], table[2i+1]), and its entry index slotEntries[i], or FREE if the slot is unused
+	private long[] table;
+	private int[] slotEntries;
+	private int mask;
+
+	// entries in insertion order. entry i holds key (entryKeys[2i], entryKeys[2i+1]) and name entryNames[i]
+	private long[] entryKeys;
+	private @Nullable String[] entryNames;
+	private final BitSet removedEntries;
+	private int entryCount;  // including the removed ones
+	private int size;
+
+	public UuidMap()
+	{
+		this(0);
+	}
+
+	public UuidMap(int expectedSize)
+	{
+		int capacity = tableCapacityFor(expectedSize);
+		this.table = new long[capacity * 2];
+		this.slotEntries = new int[capacity];
+		Arrays.fill(this.slotEntries, FREE);
+		this.mask = capacity - 1;
+		this.entryKeys = new long[Math.max(expectedSize, MIN_CAPACITY / 2) * 2];
+		this.entryNames = new String[Math.max(expectedSize, MIN_CAPACITY / 2)];
+		this.removedEntries = new BitSet();
+		this.entryCount = 0;
+		this.size = 0;
+	}
+
+	private static int tableCapacityFor(int expectedSize)
+	{
+		// keep the load factor under 0.5
+		long wanted = Math.max((long)expectedSize * 2, MIN_CAPACITY);
+		if (wanted > (1 << 30))
+		{
+			throw new IllegalArgumentException("Too many entries: " + expectedSize);
+		}
+		return Integer.highestOneBit((int)wanted - 1) << 1;
+	}
+
+	private static int hash(long msb, long lsb)
+	{
+		long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * @return the slot index of the given key, or -1 if absent
+	 */
+	private int findSlot(long msb, long lsb)
+	{
+		long[] table = this.table;
+		int mask = this.mask;
+		for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask)
+		{
+			long m = table[slot * 2];
+			long l = table[slot * 2 + 1];
+			if (m == msb && l == lsb)
+			{
+				// a nil uuid key looks the same as a free slot, double-check it
+				if (this.slotEntries[slot] != FREE)
+				{
+					return slot;
+				}
+				return -1;
+			}
+			if ((m | l) == 0 && this.slotEntries[slot] == FREE)
+			{
+				return -1;
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(long msb, long lsb)
+	{
+		return this.findSlot(msb, lsb) >= 0;
+	}
+
+	@Override
+	public @Nullable String getName(UUID uuid)
+	{
+		int slot = this.findSlot(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		return slot >= 0 ? this.entryNames[this.slotEntries[slot]] : null;
+	}
+
+	/**
+	 * Updating an existing uuid keeps its position in the insertion order
+	 */
+	@Override
+	public boolean put(long msb, long lsb, @Nullable String name)
+	{
+		int slot = this.findSlot(msb, lsb);
+		if (slot >= 0)
+		{
+			this.entryNames[this.slotEntries[slot]] = name;
+			return false;
+		}
+
+		if ((this.size + 1) * 2 > this.slotEntries.length)
+		{
+			this.rehash(tableCapacityFor(this.size + 1));
+		}
+		if (this.entryCount == this.entryNames.length)
+		{
+			int newLength = this.entryNames.length + (this.entryNames.length >> 1) + 1;
+			this.entryKeys = Arrays.copyOf(this.entryKeys, newLength * 2);
+			this.entryNames = Arrays.copyOf(this.entryNames, newLength);
+		}
+
+		int entry = this.entryCount++;
+		this.entryKeys[entry * 2] = msb;
+		this.entryKeys[entry * 2 + 1] = lsb;
+		this.entryNames[entry] = name;
+		this.insertSlot(msb, lsb, entry);
+		this.size++;
+		return true;
+	}
+
+	private void insertSlot(long msb, long lsb, int entry)
+	{
+		int slot = hash(msb, lsb) & this.mask;
+		while (this.slotEntries[slot] != FREE)
+		{
+			slot = (slot + 1) & this.mask;
+		}
+		this.table[slot * 2] = msb;
+		this.table[slot * 2 + 1] = lsb;
+		this.slotEntries[slot] = entry;
+	}
+
+	private void rehash(int capacity)
+	{
+		this.table = new long[capacity * 2];
+		this.slotEntries = new int[capacity];
+		Arrays.fill(this.slotEntries, FREE);
+		this.mask = capacity - 1;
+		for (int i = 0; i < this.entryCount; i++)
+		{
+			if (!this.removedEntries.get(i))
+			{
+				this.insertSlot(this.entryKeys[i * 2], this.entryKeys[i * 2 + 1], i);
+			}
+		}
+	}
+
+	@Override
+	public boolean remove(long msb, long lsb)
+	{
+		int slot = this.findSlot(msb, lsb);
+		if (slot < 0)
+		{
+			return false;
+		}
+
+		int entry = this.slotEntries[slot];
+		this.removedEntries.set(entry);
+		this.entryNames[entry] = null;
+		this.size--;
+
+		// backward shift deletion, so no tombstone is needed in the hash table
+		int hole = slot;
+		for (int next = (hole + 1) & this.mask; this.slotEntries[next] != FREE; next = (next + 1) & this.mask)
+		{
+			int home = hash(this.table[next * 2], this.table[next * 2 + 1]) & this.mask;
+			// move the entry at next into the hole, if its home slot is not within (hole, next]
+			if (((next - home) & this.mask) >= ((next - hole) & this.mask))
+			{
+				this.table[hole * 2] = this.table[next * 2];
+				this.table[hole * 2 + 1] = this.table[next * 2 + 1];
+				this.slotEntries[hole] = this.slotEntries[next];
+				hole = next;
+			}
+		}
+		this.table[hole * 2] = 0;
+		this.table[hole * 2 + 1] = 0;
+		this.slotEntries[hole] = FREE;
+		return true;
+	}
+
+	/**
+	 * @return a compacted copy of this map, which can be modified independently
+	 */
+	@Override
+	public UuidMap copy()
+	{
+		UuidMap copy = new UuidMap(this.size);
+		this.forEach(copy::put);
+		return copy;
+	}
+
+	/**
+	 * Iterate all entries in insertion order
+	 */
+	@Override
+	public void forEach(EntryConsumer consumer)
+	{
+		for (int i = 0; i < this.entryCount; i++)
+		{
+			if (!this.removedEntries.get(i))
+			{
+				consumer.accept(this.entryKeys[i * 2], this.entryKeys[i * 2 + 1], this.entryNames[i]);
+			}
+		}
+	}
+
+	/**
+	 * Stream all entries in insertion order
+	 */
+	@Override
+	public Stream<Map.Entry<UUID, @Nullable String>> stream()
+	{
+		return IntStream.range(0, this.entryCount).
+				filter(i -> !this.removedEntries.get(i)).
+				mapToObj(i -> Maps.immutableEntry(new UUID(this.entryKeys[i * 2], this.entryKeys[i * 2 + 1]), this.entryNames[i]));
+	}
+}
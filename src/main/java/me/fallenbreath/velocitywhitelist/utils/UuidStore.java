@@ -0,0 +1,107 @@
+package me.fallenbreath.velocitywhitelist.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * A UUID -> nullable name mapping, with the UUIDs stored as primitive longs
+ * <p>
+ * Implementations are not thread-safe. Player lists never modify a published instance, but modify a {@link #copy} instead
+ */
+public interface UuidStore
+{
+	/**
+	 * Same as the order of the uuid strings
+	 */
+	Comparator<UUID> UUID_STRING_ORDER = (a, b) -> {
+		int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+		return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+	};
+
+	int size();
+
+	default boolean isEmpty()
+	{
+		return this.size() == 0;
+	}
+
+	boolean contains(long msb, long lsb);
+
+	default boolean contains(UUID uuid)
+	{
+		return this.contains(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+	}
+
+	@Nullable String getName(UUID uuid);
+
+	/**
+	 * Insert the uuid with the given name, or update the name if the uuid already exists
+	 *
+	 * @return true if the uuid is newly added
+	 */
+	boolean put(long msb, long lsb, @Nullable String name);
+
+	default boolean put(UUID uuid, @Nullable String name)
+	{
+		return this.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), name);
+	}
+
+	/**
+	 * @return true if the uuid existed and got removed
+	 */
+	boolean remove(long msb, long lsb);
+
+	default boolean remove(UUID uuid)
+	{
+		return this.remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+	}
+
+	/**
+	 * @return a copy of this store, which can be modified independently
+	 */
+	UuidStore copy();
+
+	@FunctionalInterface
+	interface EntryConsumer
+	{
+		void accept(long msb, long lsb, @Nullable String name);
+	}
+
+	void forEach(EntryConsumer consumer);
+
+	/**
+	 * Stream the entries in the order of {@link #forEach} without copying them. The store must not be modified while the stream is in use
+	 */
+	Stream<Map.Entry<UUID, @Nullable String>> stream();
+
+	/**
+	 * Stream the entries whose uuid is within [from, to] in {@link #UUID_STRING_ORDER}
+	 * <p>
+	 * The default implementation goes through all entries
+	 */
+	default Stream<Map.Entry<UUID, @Nullable String>> streamUuidRange(UUID from, UUID to)
+	{
+		return this.stream().filter(entry -> UUID_STRING_ORDER.compare(entry.getKey(), from) >= 0 && UUID_STRING_ORDER.compare(entry.getKey(), to) <= 0);
+	}
+
+	/**
+	 * @return true if {@link #streamUuidRange} only goes through the entries within the range
+	 */
+	default boolean isUuidRangeIndexed()
+	{
+		return false;
+	}
+
+	default ImmutableList<Map.Entry<UUID, @Nullable String>> entries()
+	{
+		ImmutableList.Builder<Map.Entry<UUID, @Nullable String>> builder = ImmutableList.builderWithExpectedSize(this.size());
+		this.forEach((msb, lsb, name) -> builder.add(Maps.immutableEntry(new UUID(msb, lsb), name)));
+		return builder.build();
+	}
+}
@@ -1,37 +1,102 @@
 package me.fallenbreath.velocitywhitelist.utils;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 
 public class UuidUtils
 {
-	private static String insertDashesIntoUUIDString(String uuid)
+	private static final byte[] HEX_DIGITS = new byte[128];
+
+	static
 	{
-		StringBuilder sb = new StringBuilder(uuid);
-		sb.insert(8, "-");
-		sb.insert(13, "-");
-		sb.insert(18, "-");
-		sb.insert(23, "-");
-		return sb.toString();
+		Arrays.fill(HEX_DIGITS, (byte)-1);
+		for (int i = 0; i < 10; i++)
+		{
+			HEX_DIGITS['0' + i] = (byte)i;
+		}
+		for (int i = 0; i < 6; i++)
+		{
+			HEX_DIGITS['a' + i] = (byte)(10 + i);
+			HEX_DIGITS['A' + i] = (byte)(10 + i);
+		}
 	}
 
-	public static Optional<UUID> tryParseUuid(String value)
+	private static int hexDigit(char c)
+	{
+		return c < 128 ? HEX_DIGITS[c] : -1;
+	}
+
+	private static boolean isDashPosition(int index)
+	{
+		return index == 8 || index == 13 || index == 18 || index == 23;
+	}
+
+	/**
+	 * Checks if the given value is a 36-char dashed UUID like "xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx",
+	 * or a 32-char undashed UUID like "xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx"
+	 */
+	public static boolean isUuid(CharSequence value)
 	{
-		try
+		int length = value.length();
+		if (length != 36 && length != 32)
 		{
-			return Optional.of(UUID.fromString(value));
+			return false;
 		}
-		catch (IllegalArgumentException ignored)
+		boolean dashed = length == 36;
+		for (int i = 0; i < length; i++)
 		{
+			char c = value.charAt(i);
+			if (dashed && isDashPosition(i) ? c != '-' : hexDigit(c) < 0)
+			{
+				return false;
+			}
 		}
+		return true;
+	}
+
+	/**
+	 * Reads 16 hex digits starting from the given digit index. The value needs to be validated with {@link #isUuid} first
+	 */
+	private static long parseBits(CharSequence value, int firstDigit)
+	{
+		boolean dashed = value.length() == 36;
+		long bits = 0;
+		for (int digit = firstDigit; digit < firstDigit + 16; digit++)
+		{
+			// the dashes are after the 8th, 12th, 16th and 20th digit
+			int index = dashed ? digit + (digit >= 8 ? 1 : 0) + (digit >= 12 ? 1 : 0) + (digit >= 16 ? 1 : 0) + (digit >= 20 ? 1 : 0) : digit;
+			bits = (bits << 4) | hexDigit(value.charAt(index));
+		}
+		return bits;
+	}
 
-		if (value.length() == 32)
+	/**
+	 * Parses a dashed or undashed UUID into {@code out[0]} (most significant bits) and {@code out[1]} (least significant bits)
+	 * <p>
+	 * Nothing is allocated, so the caller can parse lots of UUIDs with a reused array
+	 *
+	 * @return if the value is a valid UUID. {@code out} is untouched if not
+	 */
+	public static boolean tryParseUuid(CharSequence value, long[] out)
+	{
+		if (!isUuid(value))
 		{
-			return tryParseUuid(insertDashesIntoUUIDString(value));
+			return false;
 		}
+		out[0] = parseBits(value, 0);
+		out[1] = parseBits(value, 16);
+		return true;
+	}
 
-		return Optional.empty();
+	public static Optional<UUID> tryParseUuid(String value)
+	{
+		if (!isUuid(value))
+		{
+			return Optional.empty();
+		}
+		return Optional.of(new UUID(parseBits(value, 0), parseBits(value, 16)));
 	}
 
 	public static UUID getOfflinePlayerUuid(String playerName)